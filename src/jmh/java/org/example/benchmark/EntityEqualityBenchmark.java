@@ -0,0 +1,87 @@
+package org.example.benchmark;
+
+import org.example.entity.Role;
+import org.example.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * equals/hashCode сущностей в HashSet. hashCode у Role и User — getClass().hashCode(),
+ * поэтому все элементы попадают в одну корзину и contains/add линейны по размеру набора.
+ * HashSet<Long> по тем же id — ориентир для сравнения.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityEqualityBenchmark {
+
+    @Param({"2", "10", "100", "1000"})
+    private int size;
+
+    private List<Role> roles;
+    private Set<Role> roleSet;
+    private Set<User> userSet;
+    private Set<Long> idSet;
+    private Role missingRole;
+    private User missingUser;
+
+    @Setup
+    public void setUp() {
+        roles = new ArrayList<>(size);
+        roleSet = new HashSet<>();
+        userSet = new HashSet<>();
+        idSet = new HashSet<>();
+        for (long id = 1; id <= size; id++) {
+            Role role = Role.builder().id(id).name("ROLE_" + id).build();
+            roles.add(role);
+            roleSet.add(role);
+            userSet.add(User.builder().id(id).email("user" + id + "@example.org").build());
+            idSet.add(id);
+        }
+        missingRole = Role.builder().id(size + 1L).name("ROLE_MISSING").build();
+        missingUser = User.builder().id(size + 1L).email("missing@example.org").build();
+    }
+
+    @Benchmark
+    public boolean roleSetContainsMissing() {
+        return roleSet.contains(missingRole);
+    }
+
+    @Benchmark
+    public boolean userSetContainsMissing() {
+        return userSet.contains(missingUser);
+    }
+
+    @Benchmark
+    public boolean idSetContainsMissing() {
+        return idSet.contains(size + 1L);
+    }
+
+    @Benchmark
+    public Set<Role> buildRoleSet() {
+        return new HashSet<>(roles);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Benchmarks.run(EntityEqualityBenchmark.class);
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.benchmark;
+
+import org.example.dto.UserDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация ответа GET /api/users: List<UserDto> на 1k и 100k элементов.
+ * writeValueAsBytes собирает весь ответ в памяти, writeTo пишет в поток, как StreamingResponseBody.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserJsonBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter listWriter;
+    private List<UserDto> users;
+
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder().build();
+        listWriter = objectMapper.writerFor(new TypeReference<List<UserDto>>() {
+        });
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(UserDto.builder()
+                    .id((long) i)
+                    .version(0L)
+                    .name("user" + i)
+                    .age(20 + i % 60)
+                    .email("user" + i + "@example.org")
+                    .roles(i % 10 == 0 ? List.of("ROLE_ADMIN", "ROLE_USER") : List.of("ROLE_USER"))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() {
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public byte[] typedWriterAsBytes() {
+        return listWriter.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public void writeTo() {
+        listWriter.writeValue(OutputStream.nullOutputStream(), users);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Benchmarks.run(UserJsonBenchmark.class);
+    }
+}
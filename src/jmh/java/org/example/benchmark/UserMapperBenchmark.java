@@ -0,0 +1,83 @@
+package org.example.benchmark;
+
+import org.example.dto.UserDto;
+import org.example.entity.Role;
+import org.example.entity.User;
+import org.example.mapper.UserMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Сравнение UserMapper с прежним ModelMapper-отображением (бин SpringRestTestApplication.modelMapper()).
+ * Запуск: {@code mvn -Pbenchmark test-compile exec:exec@jmh -Djmh.include=UserMapper} или main() из IDE.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMapperBenchmark {
+
+    private ModelMapper modelMapper;
+    private UserMapper userMapper;
+    private User user;
+    private UserDto dto;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        userMapper = new UserMapper();
+        user = User.builder()
+                .id(42L)
+                .name("benchmark")
+                .age(33)
+                .email("benchmark@example.org")
+                .password("$2a$10$abcdefghijklmnopqrstuv")
+                .roles(Set.of(Role.builder().id(1L).name("ROLE_ADMIN").build(), Role.builder().id(2L).name("ROLE_USER").build()))
+                .build();
+        dto = userMapper.toDto(user);
+        dto.setPassword("secret");
+    }
+
+    @Benchmark
+    public UserDto modelMapperToDto() {
+        UserDto result = modelMapper.map(user, UserDto.class);
+        result.setRoles(user.getRoles().stream().map(Role::getName).collect(Collectors.toList()));
+        result.setPassword(null);
+        return result;
+    }
+
+    @Benchmark
+    public UserDto userMapperToDto() {
+        return userMapper.toDto(user);
+    }
+
+    @Benchmark
+    public User modelMapperToEntity() {
+        return modelMapper.map(dto, User.class);
+    }
+
+    @Benchmark
+    public User userMapperToEntity() {
+        return userMapper.toEntity(dto);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Benchmarks.run(UserMapperBenchmark.class);
+    }
+}
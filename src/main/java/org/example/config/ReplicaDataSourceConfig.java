@@ -0,0 +1,98 @@
+package org.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Чтение с реплик (app.datasource.replica.enabled=true): @Transactional(readOnly = true) — на реплику,
+ * остальное — на primary. Вместо авто-конфигурации Boot пул primary строится здесь же из spring.datasource.*
+ * (настройки spring.datasource.hikari.* действуют и на реплики), Flyway и JPA получают прокси.
+ * LazyConnectionDataSourceProxy нужен потому, что JpaTransactionManager берёт соединение до того,
+ * как становится известен readOnly: настоящее соединение выбирается при первом запросе.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReadYourWrites readYourWrites(@Value("${app.datasource.replica.sticky-window:5s}") Duration window,
+                                         MeterRegistry meterRegistry) {
+        return new ReadYourWrites(window, meterRegistry);
+    }
+
+    // Не кандидат для внедрения по типу: единственный DataSource для Boot — прокси ниже
+    @Bean(defaultCandidate = false)
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            Environment environment,
+            ReadYourWrites readYourWrites,
+            MeterRegistry meterRegistry,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username:}") String username,
+            @Value("${spring.datasource.password:}") String password,
+            @Value("${app.datasource.replica.urls}") String replicaUrls,
+            @Value("${app.datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+            @Value("${app.datasource.replica.password:${spring.datasource.password:}}") String replicaPassword,
+            @Value("${app.datasource.replica.max-lag:2s}") Duration maxLag,
+            @Value("${app.datasource.replica.check-interval:500ms}") Duration checkInterval,
+            @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        // OSIV держит одно соединение на весь HTTP-запрос: после read-only транзакции запись ушла бы на реплику
+        if (openInView) {
+            throw new IllegalStateException("app.datasource.replica.enabled requires spring.jpa.open-in-view=false");
+        }
+        List<String> urls = Arrays.stream(replicaUrls.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("app.datasource.replica.urls is empty");
+        }
+        if (maxLag.compareTo(checkInterval) <= 0) {
+            throw new IllegalStateException("app.datasource.replica.max-lag must be greater than check-interval");
+        }
+
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool(binder, "primary", url, username, password);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String name = "replica-" + i;
+            HikariDataSource replica = pool(binder, name, urls.get(i), replicaUsername, replicaPassword);
+            replica.setReadOnly(true);
+            // Метрики пула primary Boot подключает сам, реплик он не видит
+            replica.setMetricRegistry(meterRegistry);
+            replicas.put(name, replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, readYourWrites, maxLag, checkInterval, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("replicaRoutingDataSource") ReplicaRoutingDataSource router) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(router.getPrimary());
+        proxy.setReadOnlyDataSource(router);
+        return proxy;
+    }
+
+    private static HikariDataSource pool(Binder binder, String name, String url, String username, String password) {
+        HikariDataSource pool = new HikariDataSource();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        return pool;
+    }
+}
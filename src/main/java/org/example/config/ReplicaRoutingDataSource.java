@@ -0,0 +1,215 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Источник соединений для read-only транзакций: LazyConnectionDataSourceProxy отдаёт сюда
+ * соединения, помеченные setReadOnly(true), остальные идут прямо на primary.
+ * Реплика выбирается по кругу среди тех, чей лаг не больше max-lag; иначе, а также в окне
+ * read-your-writes текущего пользователя — primary. Лаг меряется по таблице replica_heartbeat:
+ * каждый check-interval на primary пишется текущее время, с реплик читается последнее доехавшее.
+ * Пока первая проверка не прошла, реплики считаются отстающими.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements SmartLifecycle, AutoCloseable {
+
+    static final String PRIMARY = "primary";
+    private static final String WRITE_HEARTBEAT = "UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1";
+    private static final String READ_HEARTBEAT = "SELECT beat_at FROM replica_heartbeat WHERE id = 1";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ReadYourWrites readYourWrites;
+    private final long maxLagMillis;
+    private final Duration checkInterval;
+    private final JdbcTemplate primaryJdbc;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter replicaReads;
+    private final Counter stickyReads;
+    private final Counter fallbackReads;
+    private volatile Thread monitor;
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    Map<String, DataSource> replicas,
+                                    ReadYourWrites readYourWrites,
+                                    Duration maxLag,
+                                    Duration checkInterval,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.readYourWrites = readYourWrites;
+        this.maxLagMillis = maxLag.toMillis();
+        this.checkInterval = checkInterval;
+        this.primaryJdbc = new JdbcTemplate(primary);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource);
+            this.replicas.add(replica);
+            targets.put(name, dataSource);
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagMillis < 0 ? Double.NaN : r.lagMillis / 1000.0)
+                    .description("Replication lag measured via replica_heartbeat, NaN if the replica is unreachable")
+                    .tag("replica", name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+
+        this.replicaReads = readCounter(meterRegistry, "replica");
+        this.stickyReads = readCounter(meterRegistry, "primary-sticky");
+        this.fallbackReads = readCounter(meterRegistry, "primary-lag");
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (readYourWrites.isSticky()) {
+            stickyReads.increment();
+            return PRIMARY;
+        }
+        int size = replicas.size();
+        if (size == 0) {
+            fallbackReads.increment();
+            return PRIMARY;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                replicaReads.increment();
+                return replica.name;
+            }
+        }
+        fallbackReads.increment();
+        return PRIMARY;
+    }
+
+    /**
+     * Один шаг монитора: свежий heartbeat на primary и лаг каждой реплики.
+     * Измеренный лаг включает до одного check-interval, max-lag должен быть больше него.
+     */
+    void checkReplicas() {
+        long now = System.currentTimeMillis();
+        for (Replica replica : replicas) {
+            replica.check(now);
+        }
+        try {
+            primaryJdbc.update(WRITE_HEARTBEAT, now);
+        } catch (DataAccessException ex) {
+            log.warn("Cannot write replica heartbeat on the primary: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        Thread thread = new Thread(this::run, "replica-lag-monitor");
+        thread.setDaemon(true);
+        monitor = thread;
+        thread.start();
+        log.info("Routing read-only transactions to {} replica(s), max lag {} ms", replicas.size(), maxLagMillis);
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = monitor;
+        monitor = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return monitor != null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        stop();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void run() {
+        while (monitor == Thread.currentThread()) {
+            try {
+                checkReplicas();
+                Thread.sleep(checkInterval.toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Replica lag check failed", ex);
+            }
+        }
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("datasource.reads")
+                .description("Read-only connections by routing decision")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    private final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final JdbcTemplate jdbc;
+        private volatile boolean healthy;
+        private volatile long lagMillis = -1;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbc = new JdbcTemplate(dataSource);
+        }
+
+        void check(long now) {
+            boolean wasHealthy = healthy;
+            try {
+                Long beatAt = jdbc.queryForObject(READ_HEARTBEAT, Long.class);
+                lagMillis = beatAt == null ? Long.MAX_VALUE : Math.max(0, now - beatAt);
+                healthy = lagMillis <= maxLagMillis;
+            } catch (DataAccessException ex) {
+                lagMillis = -1;
+                healthy = false;
+                if (wasHealthy) {
+                    log.warn("Replica {} is unreachable, reads fall back to the primary: {}", name, ex.getMessage());
+                }
+                return;
+            }
+            if (wasHealthy && !healthy) {
+                log.warn("Replica {} lags {} ms (max {} ms), reads fall back to the primary", name, lagMillis, maxLagMillis);
+            } else if (!wasHealthy && healthy) {
+                log.info("Replica {} is in sync (lag {} ms), serving reads", name, lagMillis);
+            }
+        }
+    }
+}
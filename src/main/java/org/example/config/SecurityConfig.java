@@ -1,15 +1,32 @@
 package org.example.config;
 
 import lombok.RequiredArgsConstructor;
+import org.example.security.AdaptiveConcurrencyLimiter;
+import org.example.security.AdmissionControlFilter;
+import org.example.security.AuthenticatedUserProvider;
+import org.example.security.CachingPasswordEncoder;
+import org.example.security.CredentialCache;
+import org.example.security.OffloadingPasswordEncoder;
+import org.example.security.PasswordHashingService;
+import org.example.security.PrincipalRateLimitFilter;
+import org.example.security.RateLimits;
+import org.example.security.TokenAuthenticationFilter;
+import org.example.security.TokenService;
+import org.example.service.UserDetailsServiceImpl;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
 
 @Configuration
 @EnableWebSecurity
@@ -17,18 +34,34 @@ import org.springframework.security.web.authentication.AuthenticationSuccessHand
 public class SecurityConfig {
 
     private final AuthenticationSuccessHandler loginSuccessHandler;
+    private final TokenService tokenService;
+    private final RateLimits rateLimits;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        if (rateLimits.isEnabled()) {
+            // До сессии и аутентификации: лишний запрос отсекается раньше, чем дойдёт до БД или BCrypt
+            http.addFilterBefore(new AdmissionControlFilter(rateLimits.perIp(), concurrencyLimiter),
+                            SecurityContextHolderFilter.class)
+                    .addFilterBefore(new PrincipalRateLimitFilter(rateLimits.perPrincipal()), AuthorizationFilter.class);
+        }
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/admin.html", "/js/admin.js").hasRole("ADMIN")
                         .requestMatchers("/user.html", "/js/user.js").hasAnyRole("ADMIN", "USER")
                         .requestMatchers("/api/users/**").hasRole("ADMIN")
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers("/api/auth/user").authenticated()
+                        .requestMatchers(HttpMethod.POST, "/api/auth/token").permitAll()
+                        .requestMatchers(HttpMethod.DELETE, "/api/auth/token").authenticated()
                         .anyRequest().permitAll()
                 )
+                // Bearer-токены проверяются раньше Basic: без БД, BCrypt и сессии
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService), BasicAuthenticationFilter.class)
                 .httpBasic(httpBasic -> {})
                 .formLogin(form -> form
                         .loginPage("/login.html")
@@ -39,8 +72,24 @@ public class SecurityConfig {
                 .build();
     }
 
+    // Единственный AuthenticationProvider: его используют форма, Basic и POST /api/auth/token
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public AuthenticatedUserProvider authenticationProvider(UserDetailsServiceImpl userDetailsService,
+                                                            PasswordEncoder passwordEncoder) {
+        AuthenticatedUserProvider provider = new AuthenticatedUserProvider(userDetailsService, passwordEncoder);
+        provider.setUserDetailsPasswordService(userDetailsService);
+        return provider;
+    }
+
+    // Для POST /api/auth/token: тот же DaoAuthenticationProvider, что у Basic и формы
+    @Bean
+    public AuthenticationManager authenticationManager(AuthenticationConfiguration configuration) throws Exception {
+        return configuration.getAuthenticationManager();
+    }
+
+    @Bean
+    public PasswordEncoder passwordEncoder(PasswordHashingService hashingService, CredentialCache credentialCache) {
+        PasswordEncoder encoder = new OffloadingPasswordEncoder(hashingService.encoder(), hashingService);
+        return credentialCache.isEnabled() ? new CachingPasswordEncoder(encoder, credentialCache) : encoder;
     }
 }
@@ -0,0 +1,68 @@
+package org.example.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Разбивка времени старта по фазам из BufferingApplicationStartup (см. SpringRestTestApplication.main):
+ * суммарное время по типу шага и самые долгие отдельные шаги (бины, репозитории, app.seed).
+ * Длительности включают вложенные шаги. Полный таймлайн — GET /actuator/startup.
+ */
+@Slf4j
+@Component
+public class StartupReport {
+
+    private final int top;
+
+    public StartupReport(@Value("${app.startup.report-top:10}") int top) {
+        this.top = top;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report(ApplicationReadyEvent event) {
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+            return;
+        }
+        List<StartupTimeline.TimelineEvent> events = startup.getBufferedTimeline().getEvents();
+
+        Map<String, Duration> byPhase = new HashMap<>();
+        for (StartupTimeline.TimelineEvent e : events) {
+            byPhase.merge(e.getStartupStep().getName(), e.getDuration(), Duration::plus);
+        }
+        String phases = byPhase.entrySet().stream()
+                .sorted(Map.Entry.<String, Duration>comparingByValue().reversed())
+                .limit(top)
+                .map(e -> String.format("%n  %6d ms  %s", e.getValue().toMillis(), e.getKey()))
+                .collect(Collectors.joining());
+        String slowest = events.stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(top)
+                .map(e -> String.format("%n  %6d ms  %s %s", e.getDuration().toMillis(),
+                        e.getStartupStep().getName(), tags(e.getStartupStep())))
+                .collect(Collectors.joining());
+
+        log.info("Ready in {} ms. Time by phase:{}\nSlowest steps:{}",
+                event.getTimeTaken() == null ? -1 : event.getTimeTaken().toMillis(), phases, slowest);
+    }
+
+    private static String tags(StartupStep step) {
+        StringBuilder tags = new StringBuilder();
+        for (StartupStep.Tag tag : step.getTags()) {
+            tags.append(tags.isEmpty() ? "" : ", ").append(tag.getKey()).append('=').append(tag.getValue());
+        }
+        return tags.isEmpty() ? "" : "[" + tags + "]";
+    }
+}
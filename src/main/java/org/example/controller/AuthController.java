@@ -1,33 +1,92 @@
 package org.example.controller;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.validation.Valid;
+import org.example.dto.TokenRequestDto;
+import org.example.dto.TokenResponseDto;
 import org.example.dto.UserDto;
-import org.example.entity.Role;
-import org.example.entity.User;
-import org.modelmapper.ModelMapper;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.example.exception.BadRequestException;
+import org.example.security.AccessToken;
+import org.example.security.AuthenticatedUser;
+import org.example.security.TokenRevocations;
+import org.example.security.TokenService;
+import org.example.service.UserService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
 
-import java.util.stream.Collectors;
-
-@RequiredArgsConstructor
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
-    private final ModelMapper modelMapper;
+    private final UserService userService;
+    private final AuthenticationManager authenticationManager;
+    private final TokenService tokenService;
+    private final TokenRevocations tokenRevocations;
+    // Сериализатор AuthenticatedUser находится один раз, а не на каждый из частых опросов страниц
+    private final ObjectWriter currentUserWriter;
+
+    public AuthController(UserService userService,
+                          AuthenticationManager authenticationManager,
+                          TokenService tokenService,
+                          TokenRevocations tokenRevocations,
+                          ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.authenticationManager = authenticationManager;
+        this.tokenService = tokenService;
+        this.tokenRevocations = tokenRevocations;
+        this.currentUserWriter = objectMapper.writerFor(AuthenticatedUser.class);
+    }
 
+    /**
+     * После входа по паролю принципал уже готовый AuthenticatedUser: ни маппинга, ни БД.
+     * Токен несёт только id, email и роли, поэтому профиль читается по id.
+     */
     @GetMapping("/user")
-    public UserDto getCurrentUser(@AuthenticationPrincipal User user) {
-        return toDto(user);
+    public ResponseEntity<byte[]> getCurrentUser(Authentication authentication) {
+        AuthenticatedUser user = authentication.getPrincipal() instanceof AccessToken token
+                ? toAuthenticatedUser(userService.getUserById(token.userId()))
+                : (AuthenticatedUser) authentication.getPrincipal();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(currentUserWriter.writeValueAsBytes(user));
+    }
+
+    /**
+     * Обмен email/пароля на access-токен: BCrypt проверяется один раз здесь,
+     * дальше запросы с Authorization: Bearer обходятся без него.
+     */
+    @PostMapping("/token")
+    public ResponseEntity<TokenResponseDto> issueToken(@Valid @RequestBody TokenRequestDto request) {
+        Authentication authentication = authenticationManager.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated(request.getEmail(), request.getPassword()));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(tokenService.issue((AuthenticatedUser) authentication.getPrincipal()));
+    }
+
+    // Logout для токена, которым подписан сам запрос
+    @DeleteMapping("/token")
+    public ResponseEntity<Void> revokeToken(Authentication authentication) {
+        if (!(authentication.getPrincipal() instanceof AccessToken token)) {
+            throw new BadRequestException("Only bearer tokens can be revoked");
+        }
+        tokenRevocations.revoke(token);
+        return ResponseEntity.noContent().build();
     }
 
-    private UserDto toDto(User user) {
-        UserDto dto = modelMapper.map(user, UserDto.class);
-        dto.setRoles(user.getRoles().stream().map(Role::getName).collect(Collectors.toList()));
-        dto.setPassword(null);
-        return dto;
+    private static AuthenticatedUser toAuthenticatedUser(UserDto user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getName(), user.getAge(),
+                user.getRoles().stream().sorted().toList());
     }
 }
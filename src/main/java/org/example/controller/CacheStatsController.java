@@ -0,0 +1,30 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.dto.CacheStatsDto;
+import org.example.security.CredentialCache;
+import org.example.security.PrincipalCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/cache-stats")
+@RequiredArgsConstructor
+public class CacheStatsController {
+
+    private final PrincipalCache principalCache;
+    private final CredentialCache credentialCache;
+
+    @GetMapping
+    public ResponseEntity<Map<String, CacheStatsDto>> getStats() {
+        Map<String, CacheStatsDto> stats = new LinkedHashMap<>();
+        stats.put("principals", principalCache.stats());
+        stats.put("credentials", credentialCache.stats());
+        return ResponseEntity.ok(stats);
+    }
+}
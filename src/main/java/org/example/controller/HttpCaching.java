@@ -0,0 +1,58 @@
+package org.example.controller;
+
+import org.example.exception.PreconditionFailedException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ETag-и строятся из @Version и счётчиков DataVersions, тело ответа не хэшируется.
+ * Проверка If-None-Match делается до чтения данных, поэтому 304 обходится без сериализации.
+ */
+final class HttpCaching {
+
+    // Пользователи меняются в любой момент: браузер хранит ответ, но каждый раз переспрашивает по ETag
+    static final CacheControl USERS = CacheControl.noCache().cachePrivate();
+
+    // Роли меняются почти никогда: минуту без запросов, дальше — ревалидация
+    static final CacheControl ROLES = CacheControl.maxAge(1, TimeUnit.MINUTES).cachePrivate().mustRevalidate();
+
+    private HttpCaching() {
+    }
+
+    static String userETag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Версия из If-Match: "5". null — заголовка нет или "*" (подходит любая версия).
+     * If-Match требует строгого сравнения, поэтому слабый W/"5" не совпадает ни с чем.
+     */
+    static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException("If-Match does not match any user version: " + ifMatch);
+        }
+    }
+
+    static String collectionETag(String name, long version) {
+        return "\"" + name + "-" + version + "\"";
+    }
+
+    static <T> ResponseEntity<T> notModified(String eTag, CacheControl cacheControl) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .build();
+    }
+}
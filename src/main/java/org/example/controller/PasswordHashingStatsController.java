@@ -0,0 +1,22 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.dto.PasswordHashingStatsDto;
+import org.example.security.PasswordHashingService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/password-hashing-stats")
+@RequiredArgsConstructor
+public class PasswordHashingStatsController {
+
+    private final PasswordHashingService passwordHashingService;
+
+    @GetMapping
+    public ResponseEntity<PasswordHashingStatsDto> getStats() {
+        return ResponseEntity.ok(passwordHashingService.stats());
+    }
+}
@@ -2,9 +2,11 @@ package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.example.dto.RoleDto;
+import org.example.service.DataVersions;
 import org.example.service.RoleService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -14,9 +16,17 @@ import java.util.List;
 public class RoleRestController {
 
     private final RoleService roleService;
+    private final DataVersions dataVersions;
 
     @GetMapping
-    public ResponseEntity<List<RoleDto>> getAllRoles() {
-        return ResponseEntity.ok(roleService.getAllRoles());
+    public ResponseEntity<List<RoleDto>> getAllRoles(WebRequest request) {
+        String eTag = HttpCaching.collectionETag("roles", dataVersions.roles());
+        if (request.checkNotModified(eTag)) {
+            return HttpCaching.notModified(eTag, HttpCaching.ROLES);
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(HttpCaching.ROLES)
+                .body(roleService.getAllRoles());
     }
 }
@@ -0,0 +1,38 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.service.UserChangeDispatcher;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+public class UserChangeController {
+
+    private final UserChangeDispatcher dispatcher;
+
+    /**
+     * Лента изменений пользователей (SSE, событие "user"). EventSource сам присылает Last-Event-ID
+     * при переподключении; ?after=<id> — то же для первого подключения.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                              @RequestParam(required = false) Long after) {
+        return dispatcher.subscribe(lastEventId != null ? parseEventId(lastEventId) : after);
+    }
+
+    // Чужой или испорченный id — просто подписка без истории
+    private static Long parseEventId(String lastEventId) {
+        try {
+            return Long.valueOf(lastEventId.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
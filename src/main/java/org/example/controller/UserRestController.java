@@ -1,29 +1,184 @@
 package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.dto.BulkImportResultDto;
+import org.example.dto.BulkOperationResultDto;
+import org.example.dto.RoleAssignmentDto;
 import org.example.dto.UserDto;
+import org.example.dto.UserPatchDto;
+import org.example.dto.UserSearchCriteria;
+import org.example.dto.Versioned;
+import org.example.exception.BadRequestException;
+import org.example.service.UserExportService;
+import org.example.service.UserImportService;
 import org.example.service.UserService;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/users")
 @RequiredArgsConstructor
 public class UserRestController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "name", "age", "email");
+
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * Keyset-пагинация: ?after=<последний id предыдущей страницы>&limit=N.
+     * Если страница полная, id последнего пользователя возвращается в заголовке X-Next-Cursor.
+     * ETag общий для всех страниц списка и меняется при любой записи в пользователей или роли.
+     * Для 304 версия читается отдельно, а ответ 200 несёт версию, прочитанную вместе со страницей.
+     */
     @GetMapping
-    public ResponseEntity<List<UserDto>> getAll() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<List<UserDto>> getAll(@RequestParam(required = false) Long after,
+                                                @RequestParam(defaultValue = "100") int limit,
+                                                WebRequest request) {
+        String eTag = HttpCaching.collectionETag("users", userService.getUsersVersion());
+        if (request.checkNotModified(eTag)) {
+            return HttpCaching.notModified(eTag, HttpCaching.USERS);
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Versioned<List<UserDto>> versioned = userService.getVersionedUsersPage(after, pageSize);
+        List<UserDto> page = versioned.body();
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(HttpCaching.collectionETag("users", versioned.version()))
+                .cacheControl(HttpCaching.USERS);
+        if (page.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+        }
+        return response.body(page);
     }
 
+    /**
+     * NDJSON-стрим всех пользователей: читается порциями по STREAM_CHUNK_SIZE,
+     * каждая порция пишется в ответ и отбрасывается, поэтому память не растёт вместе с таблицей.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) Long after) {
+        ObjectWriter writer = objectMapper.writerFor(UserDto.class);
+        StreamingResponseBody body = out -> {
+            Long cursor = after;
+            List<UserDto> chunk;
+            do {
+                chunk = userService.getUsersPage(cursor, STREAM_CHUNK_SIZE);
+                for (UserDto user : chunk) {
+                    out.write(writer.writeValueAsBytes(user));
+                    out.write('\n');
+                }
+                out.flush();
+                if (!chunk.isEmpty()) {
+                    cursor = chunk.get(chunk.size() - 1).getId();
+                }
+            } while (chunk.size() == STREAM_CHUNK_SIZE);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Полная выгрузка для ночных заданий: ?format=ndjson|csv, один курсор по БД прямо в ответ.
+     * При Accept-Encoding: gzip сжимается на лету, в памяти только буферы, а не весь файл.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                                        String acceptEncoding) {
+        UserExportService.Format exportFormat = UserExportService.Format.of(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                userExportService.export(exportFormat, compressed);
+                compressed.finish();
+            } else {
+                userExportService.export(exportFormat, out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(exportFormat.fileName()).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .cacheControl(CacheControl.noStore());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Серверный поиск: ?email=<префикс>&name=<подстрока>&minAge=&maxAge=&role=&page=&size=&sort=
+     */
+    @GetMapping("/search")
+    public ResponseEntity<PagedModel<UserDto>> search(UserSearchCriteria criteria,
+                                                      @PageableDefault(size = 50, sort = "id") Pageable pageable,
+                                                      WebRequest request) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE_FIELDS.contains(order.getProperty())) {
+                throw new BadRequestException("Cannot sort by '" + order.getProperty() + "'");
+            }
+        }
+
+        String eTag = HttpCaching.collectionETag("users", userService.getUsersVersion());
+        if (request.checkNotModified(eTag)) {
+            return HttpCaching.notModified(eTag, HttpCaching.USERS);
+        }
+        Versioned<PagedModel<UserDto>> result = userService.searchUsers(criteria, pageable);
+        return ResponseEntity.ok()
+                .eTag(HttpCaching.collectionETag("users", result.version()))
+                .cacheControl(HttpCaching.USERS)
+                .body(result.body());
+    }
+
+    /**
+     * ETag — значение @Version пользователя. If-None-Match проверяется по одному SELECT версии,
+     * а ответ 200 берёт ETag из самого тела: версия и данные из разных транзакций (и, с репликами,
+     * разных баз) могли бы разойтись, и If-Match по такому ETag затёр бы невиданные изменения.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<UserDto> getOne(@PathVariable Long id) {
-        return ResponseEntity.ok(userService.getUserById(id));
+    public ResponseEntity<UserDto> getOne(@PathVariable Long id, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            String eTag = HttpCaching.userETag(userService.getUserVersion(id));
+            if (request.checkNotModified(eTag)) {
+                return HttpCaching.notModified(eTag, HttpCaching.USERS);
+            }
+        }
+        UserDto user = userService.getUserById(id);
+        return ResponseEntity.ok()
+                .eTag(HttpCaching.userETag(user.getVersion()))
+                .cacheControl(HttpCaching.USERS)
+                .body(user);
     }
 
     @PostMapping
@@ -31,14 +186,62 @@ public class UserRestController {
         return ResponseEntity.ok(userService.createUser(dto));
     }
 
+    /**
+     * Массовый импорт из JSON-массива. Ошибки валидации и дубликаты не прерывают импорт,
+     * а возвращаются построчно в результате.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkImportResultDto> importUsers(@RequestBody List<UserDto> users) {
+        return ResponseEntity.ok(userImportService.importUsers(users.iterator()));
+    }
+
+    /**
+     * Массовый импорт из NDJSON: строки читаются потоком, в памяти держится только текущая порция.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkImportResultDto> importUsersStream(InputStream body) throws IOException {
+        try (MappingIterator<UserDto> users = objectMapper.readerFor(UserDto.class).readValues(body)) {
+            return ResponseEntity.ok(userImportService.importUsers(users));
+        }
+    }
+
+    /**
+     * Условная запись: If-Match с ETag из GET (или version в теле). Несовпадение версии — 412,
+     * параллельная запись между чтением и UPDATE — 409. Без If-Match запись безусловная.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<UserDto> update(@PathVariable Long id, @Valid @RequestBody UserDto dto) {
-        return ResponseEntity.ok(userService.updateUser(id, dto));
+    public ResponseEntity<UserDto> update(@PathVariable Long id, @Valid @RequestBody UserDto dto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = ifMatch != null ? HttpCaching.parseVersion(ifMatch) : dto.getVersion();
+        return withETag(userService.updateUser(id, dto, expectedVersion));
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<UserDto> patch(@PathVariable Long id, @Valid @RequestBody UserPatchDto patch,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(userService.patchUser(id, patch, HttpCaching.parseVersion(ifMatch)));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable Long id) {
-        userService.deleteUser(id);
+    public ResponseEntity<Void> delete(@PathVariable Long id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userService.deleteUser(id, HttpCaching.parseVersion(ifMatch));
         return ResponseEntity.ok().build();
     }
+
+    @DeleteMapping
+    public ResponseEntity<BulkOperationResultDto> deleteAll(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(new BulkOperationResultDto(userService.deleteUsers(ids)));
+    }
+
+    @PatchMapping("/roles")
+    public ResponseEntity<BulkOperationResultDto> updateRoles(@Valid @RequestBody RoleAssignmentDto assignment) {
+        return ResponseEntity.ok(new BulkOperationResultDto(userService.updateRoles(assignment)));
+    }
+
+    private ResponseEntity<UserDto> withETag(UserDto user) {
+        return ResponseEntity.ok()
+                .eTag(HttpCaching.userETag(user.getVersion()))
+                .body(user);
+    }
 }
@@ -0,0 +1,35 @@
+package org.example.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Добавление/удаление одной роли у набора пользователей:
+ * либо по списку ids, либо по фильтру emailPrefix.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RoleAssignmentDto {
+
+    public enum Action { ADD, REMOVE }
+
+    private List<Long> ids;
+
+    private String emailPrefix;
+
+    @NotBlank(message = "Role is required")
+    private String role;
+
+    @NotNull(message = "Action is required")
+    private Action action;
+}
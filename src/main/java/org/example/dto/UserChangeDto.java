@@ -0,0 +1,33 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Событие ленты /api/users/changes. id — позиция в outbox (SSE id, Last-Event-ID для продолжения).
+ * Значения полей не передаются: клиент сам перечитывает пользователя, если тот у него на экране.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserChangeDto {
+
+    public enum Operation {
+        CREATED, UPDATED, DELETED,
+        // Массовое изменение или потерянная история: клиенту проще перечитать текущую страницу
+        RELOAD
+    }
+
+    private long id;
+    private Operation operation;
+    private Long userId;
+    private Long version;
+    private List<String> fields;
+}
@@ -23,6 +23,9 @@ import java.util.List;
 public class UserDto {
     private Long id;
 
+    // Версия для оптимистической блокировки; при создании игнорируется
+    private Long version;
+
     @NotBlank(message = "Name is required")
     @Size(min = 2, max = 50, message = "Name must be 2-50 characters")
     private String name;
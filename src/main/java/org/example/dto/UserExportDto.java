@@ -0,0 +1,10 @@
+package org.example.dto;
+
+import java.util.List;
+
+/**
+ * Строка выгрузки /api/users/export: те же поля, что колонки CSV. Пароля здесь нет вовсе,
+ * в отличие от UserDto, где он есть для запросов на запись.
+ */
+public record UserExportDto(long id, String name, int age, String email, long version, List<String> roles) {
+}
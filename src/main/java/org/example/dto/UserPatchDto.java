@@ -0,0 +1,39 @@
+package org.example.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Частичное обновление пользователя: null-поля не меняются.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserPatchDto {
+
+    @Size(min = 2, max = 50, message = "Name must be 2-50 characters")
+    private String name;
+
+    @Min(value = 12, message = "Age must be at least 12")
+    @Max(value = 130, message = "Age must be at most 130")
+    private Integer age;
+
+    @Email(message = "Invalid email format")
+    private String email;
+
+    private String password;
+
+    @Size(min = 1, message = "At least one role must be selected")
+    private List<String> roles;
+}
@@ -0,0 +1,8 @@
+package org.example.dto;
+
+/**
+ * Данные вместе с версией коллекции, прочитанной в той же транзакции: ETag ответа
+ * описывает ровно это тело, даже если соседние запросы ушли на другую реплику.
+ */
+public record Versioned<T>(long version, T body) {
+}
@@ -2,10 +2,13 @@ package org.example.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,6 +16,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.example.service.RoleRegistryListener;
 import org.hibernate.proxy.HibernateProxy;
 import org.springframework.security.core.GrantedAuthority;
 
@@ -20,6 +24,7 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "roles")
+@EntityListeners(RoleRegistryListener.class)
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -29,13 +34,18 @@ import java.util.Objects;
 public class Role implements GrantedAuthority {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // initialValue = START WITH из V2: pooled-оптимизатор начинает с 1001, а не с 1001 - allocationSize + 1
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "roles_seq")
+    @SequenceGenerator(name = "roles_seq", sequenceName = "roles_seq", initialValue = 1001, allocationSize = 10)
     private Long id;
 
     @Size(min = 5, max = 12, message = "Role name must be like 'ROLE_USER'")
     @Column(nullable = false, unique = true)
     private String name;
 
+    @Version
+    private Long version;
+
     @Override
     public String getAuthority() {
         return name;
@@ -0,0 +1,66 @@
+package org.example.mapper;
+
+import org.example.dto.UserDto;
+import org.example.entity.Role;
+import org.example.entity.User;
+import org.example.repository.UserSummary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Явное отображение User <-> UserDto без рефлексии.
+ * Пароль в DTO никогда не попадает, роли в сущность проставляет сервис.
+ * Версия в сущность не копируется: для save() User с непустой @Version считается уже существующим.
+ */
+@Component
+public class UserMapper {
+
+    public UserDto toDto(User user) {
+        return toDto(user, roleNames(user.getRoles()));
+    }
+
+    public UserDto toDto(User user, List<String> roles) {
+        return UserDto.builder()
+                .id(user.getId())
+                .version(user.getVersion())
+                .name(user.getName())
+                .age(user.getAge())
+                .email(user.getEmail())
+                .roles(roles)
+                .build();
+    }
+
+    public UserDto toDto(UserSummary user, List<String> roles) {
+        return UserDto.builder()
+                .id(user.getId())
+                .version(user.getVersion())
+                .name(user.getName())
+                .age(user.getAge())
+                .email(user.getEmail())
+                .roles(roles)
+                .build();
+    }
+
+    public User toEntity(UserDto dto) {
+        return User.builder()
+                .id(dto.getId())
+                .name(dto.getName())
+                .age(dto.getAge())
+                .email(dto.getEmail())
+                .password(dto.getPassword())
+                .build();
+    }
+
+    private List<String> roleNames(Collection<Role> roles) {
+        List<String> names = new ArrayList<>(roles == null ? 0 : roles.size());
+        if (roles != null) {
+            for (Role role : roles) {
+                names.add(role.getName());
+            }
+        }
+        return names;
+    }
+}
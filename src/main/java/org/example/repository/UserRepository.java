@@ -1,21 +1,51 @@
 package org.example.repository;
 
 import org.example.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
     Optional<User> findByEmail(String email);
 
-    @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles")
-    List<User> findAllWithRoles();
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.email = :email")
+    Optional<User> findByEmailWithRoles(@Param("email") String email);
+
+    @Query("SELECT u.version FROM User u WHERE u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT u.email FROM User u WHERE u.id = :id")
+    Optional<String> findEmailById(@Param("id") Long id);
+
+    @Query("SELECT u.id FROM User u WHERE u.email LIKE CONCAT(:pattern, '%') ESCAPE '\\' " +
+            "AND u.id > :after ORDER BY u.id")
+    List<Long> findIdsByEscapedEmailPrefixAfter(@Param("pattern") String escapedPrefix,
+                                                @Param("after") Long after, Limit limit);
+
+    // Keyset-страница id по буквальному префиксу email: список не грузится в память целиком
+    default List<Long> findIdsByEmailPrefixAfter(String emailPrefix, Long after, Limit limit) {
+        return findIdsByEscapedEmailPrefixAfter(UserSpecifications.escapeLike(emailPrefix), after, limit);
+    }
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT u.id AS id, u.name AS name, u.age AS age, u.email AS email, u.version AS version " +
+            "FROM User u WHERE u.id > :after ORDER BY u.id")
+    List<UserSummary> findSummariesAfter(@Param("after") Long after, Limit limit);
+
+    @Query("SELECT u.id AS userId, r.name AS roleName FROM User u JOIN u.roles r WHERE u.id IN :ids")
+    List<UserRoleRow> findRoleRowsByUserIdIn(@Param("ids") Collection<Long> ids);
 
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.id = :id")
     Optional<User> findByIdWithRoles(@Param("id") Long id);
@@ -23,4 +53,45 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Modifying
     @Query("DELETE FROM User u WHERE u.id = :id")
     int deleteUserByIdCustom(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id = :id AND u.version = :version")
+    int deleteUserByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
+
+    @Modifying
+    @Query("UPDATE VERSIONED User u SET u.password = :password WHERE u.email = :email")
+    int updatePasswordByEmail(@Param("email") String email, @Param("password") String password);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM users_roles WHERE user_id IN (:ids)", nativeQuery = true)
+    int deleteRoleLinksByUserIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM users WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT u.id FROM users u WHERE u.id IN (:ids) " +
+            "AND NOT EXISTS (SELECT 1 FROM users_roles ur WHERE ur.user_id = u.id AND ur.role_id = :roleId)",
+            nativeQuery = true)
+    List<Long> findIdsWithoutRole(@Param("roleId") Long roleId, @Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT ur.user_id FROM users_roles ur WHERE ur.role_id = :roleId AND ur.user_id IN (:ids)",
+            nativeQuery = true)
+    List<Long> findIdsWithRole(@Param("roleId") Long roleId, @Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "INSERT INTO users_roles (user_id, role_id) " +
+            "SELECT u.id, :roleId FROM users u WHERE u.id IN (:ids) " +
+            "AND NOT EXISTS (SELECT 1 FROM users_roles ur WHERE ur.user_id = u.id AND ur.role_id = :roleId)",
+            nativeQuery = true)
+    int addRoleByUserIdIn(@Param("roleId") Long roleId, @Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM users_roles WHERE role_id = :roleId AND user_id IN (:ids)", nativeQuery = true)
+    int removeRoleByUserIdIn(@Param("roleId") Long roleId, @Param("ids") Collection<Long> ids);
+
+    // Нативные запросы по users_roles не трогают @Version, поэтому версию поднимаем явно
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE users SET version = version + 1 WHERE id IN (:ids)", nativeQuery = true)
+    int incrementVersionByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,9 @@
+package org.example.repository;
+
+/**
+ * Одна строка users_roles с именем роли.
+ */
+public interface UserRoleRow {
+    Long getUserId();
+    String getRoleName();
+}
@@ -0,0 +1,52 @@
+package org.example.repository;
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.example.entity.Role;
+import org.example.entity.User;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Условия для поиска пользователей. Каждое условие опирается на индекс:
+ * email - префиксный LIKE по unique-индексу, age - диапазон по idx_users_age,
+ * role - подзапрос по idx_users_roles_role_user (role_id, user_id) без скана users_roles.
+ */
+public final class UserSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> emailStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("email"), escapeLike(prefix) + "%", LIKE_ESCAPE);
+    }
+
+    public static Specification<User> nameContains(String part) {
+        return (root, query, cb) -> cb.like(root.get("name"), "%" + escapeLike(part) + "%", LIKE_ESCAPE);
+    }
+
+    public static Specification<User> ageAtLeast(Integer minAge) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("age"), minAge);
+    }
+
+    public static Specification<User> ageAtMost(Integer maxAge) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("age"), maxAge);
+    }
+
+    public static Specification<User> hasRole(Long roleId) {
+        return (root, query, cb) -> {
+            Subquery<Long> userIds = query.subquery(Long.class);
+            Root<User> user = userIds.from(User.class);
+            Join<User, Role> role = user.join("roles");
+            userIds.select(user.get("id")).where(cb.equal(role.get("id"), roleId));
+            return root.get("id").in(userIds);
+        };
+    }
+
+    // Экранирует %, _ и \ для LIKE ... ESCAPE '\': значение от пользователя сравнивается буквально
+    public static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
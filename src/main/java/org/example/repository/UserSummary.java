@@ -0,0 +1,12 @@
+package org.example.repository;
+
+/**
+ * Скалярная проекция пользователя без коллекции ролей: одна строка на пользователя.
+ */
+public interface UserSummary {
+    Long getId();
+    String getName();
+    Integer getAge();
+    String getEmail();
+    Long getVersion();
+}
@@ -0,0 +1,22 @@
+package org.example.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.util.List;
+
+/**
+ * Проверенный access-токен: принципал запросов с Authorization: Bearer.
+ * Всё нужное для авторизации (id, email, роли) берётся из самого токена, без обращения к БД.
+ */
+public record AccessToken(String id,
+                          Long userId,
+                          String email,
+                          List<String> roles,
+                          long issuedAt,
+                          long expiresAt) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Глобальный лимит одновременных запросов, который подстраивается под задержку (градиент, как в
+ * Netflix concurrency-limits Gradient2). Раз в window средняя задержка окна сравнивается с долгой
+ * средней: пока они близки, лимит растёт на sqrt(limit); когда запросы начинают ждать (БД, пул BCrypt),
+ * лимит сжимается пропорционально, и лишние запросы сразу получают 429 вместо очереди.
+ * Захват и освобождение — CAS по счётчику; пересчёт выполняет тот, кто первым закрыл окно.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double TOLERANCE = 1.5;
+    private static final int LONG_WINDOW = 600;
+    private static final int MIN_WINDOW_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final LongAdder windowRttSum = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicLong windowEnd;
+    private final Counter rejected;
+    private volatile double limit;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(@Value("${app.rate-limit.concurrency.initial:100}") int initialLimit,
+                                      @Value("${app.rate-limit.concurrency.min:10}") int minLimit,
+                                      @Value("${app.rate-limit.concurrency.max:1000}") int maxLimit,
+                                      @Value("${app.rate-limit.concurrency.window:1s}") Duration window,
+                                      MeterRegistry meterRegistry) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.windowNanos = window.toNanos();
+        this.windowEnd = new AtomicLong(System.nanoTime() + windowNanos);
+        this.rejected = Counter.builder("rate.limit.rejected")
+                .description("Requests rejected with 429")
+                .tag("limiter", "concurrency")
+                .register(meterRegistry);
+        Gauge.builder("rate.limit.concurrency.limit", this, l -> l.limit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("rate.limit.concurrency.in.flight", inFlight, AtomicInteger::get)
+                .description("Requests currently admitted")
+                .register(meterRegistry);
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                maxInFlight.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    // Без замера: асинхронные запросы (SSE, StreamingResponseBody) держат соединение, а не поток
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void release(long rttNanos) {
+        inFlight.decrementAndGet();
+        windowRttSum.add(rttNanos);
+        windowSamples.increment();
+
+        long end = windowEnd.get();
+        long now = System.nanoTime();
+        if (now - end >= 0 && windowEnd.compareAndSet(end, now + windowNanos)) {
+            // Сумма и число сбрасываются не атомарно вместе: пара попавших между ними замеров не важна
+            long samples = windowSamples.sumThenReset();
+            long sum = windowRttSum.sumThenReset();
+            int peak = maxInFlight.getAndSet(inFlight.get());
+            if (samples >= MIN_WINDOW_SAMPLES) {
+                update((double) sum / samples, peak);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    // Вызывается одним потоком за окно (после выигранного CAS по windowEnd)
+    private void update(double shortRtt, int peakInFlight) {
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) / LONG_WINDOW;
+        }
+        // Задержка надолго упала (прогрелись кэши): долгая средняя догоняет быстрее
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        double current = limit;
+        // Нагрузка далеко от лимита: замеры ничего не говорят о том, сколько выдержит сервер
+        if (peakInFlight < current / 2) {
+            return;
+        }
+        double gradient = Math.clamp(TOLERANCE * longRtt / shortRtt, 0.5, 1.0);
+        double target = current * gradient + Math.sqrt(current);
+        limit = Math.clamp(current * (1 - SMOOTHING) + target * SMOOTHING, minLimit, maxLimit);
+    }
+}
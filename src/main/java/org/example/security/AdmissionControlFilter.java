@@ -0,0 +1,69 @@
+package org.example.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Первый фильтр цепочки Spring Security для /api/** и POST /login: bucket по IP клиента и глобальный
+ * адаптивный лимит одновременных запросов. Срабатывает до загрузки сессии, проверки токена и BCrypt,
+ * поэтому отказ стоит дешевле любого запроса. IP — request.getRemoteAddr(): за прокси его подставляет
+ * server.forward-headers-strategy, заголовкам клиента здесь не доверяем.
+ * Создаётся в SecurityConfig, а не как @Component, как и TokenAuthenticationFilter.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final RateLimiter perIp;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    public AdmissionControlFilter(RateLimiter perIp, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.perIp = perIp;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return !(path.startsWith("/api/") || path.equals("/login"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long retryAfter = perIp.tryAcquire(request.getRemoteAddr());
+        if (retryAfter > 0) {
+            reject(response, retryAfter);
+            return;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            reject(response, TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+
+        long started = System.nanoTime();
+        boolean measured = false;
+        try {
+            chain.doFilter(request, response);
+            measured = !request.isAsyncStarted();
+        } finally {
+            if (measured) {
+                concurrencyLimiter.release(System.nanoTime() - started);
+            } else {
+                concurrencyLimiter.release();
+            }
+        }
+    }
+
+    static void reject(HttpServletResponse response, long retryAfterNanos) throws IOException {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests");
+    }
+}
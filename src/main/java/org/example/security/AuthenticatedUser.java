@@ -0,0 +1,34 @@
+package org.example.security;
+
+import org.example.entity.Role;
+import org.example.entity.User;
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Принципал после входа по паролю (форма, Basic, POST /api/auth/token): собирается один раз при
+ * аутентификации и живёт в SecurityContext и HttpSession вместо detached User.
+ * Без хэша пароля, без Hibernate-коллекций и ссылок на сущности; сериализуется в /api/auth/user как есть.
+ */
+public record AuthenticatedUser(Long id,
+                                String email,
+                                String name,
+                                Integer age,
+                                List<String> roles) implements AuthenticatedPrincipal, Serializable {
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getEmail(),
+                user.getName(),
+                user.getAge(),
+                user.getRoles().stream().map(Role::getName).sorted().toList());
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.security;
+
+import org.example.entity.Role;
+import org.example.entity.User;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+
+/**
+ * DaoAuthenticationProvider, который кладёт в Authentication AuthenticatedUser вместо User:
+ * проверка пароля и перехэширование (UserDetailsPasswordService) остаются стандартными,
+ * меняется только то, что хранится в контексте и сессии. Role-сущности в authorities
+ * заменяются на SimpleGrantedAuthority, остальные (например, факторы входа) сохраняются.
+ */
+public class AuthenticatedUserProvider extends DaoAuthenticationProvider {
+
+    public AuthenticatedUserProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+        super(userDetailsService);
+        setPasswordEncoder(passwordEncoder);
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails user) {
+        Authentication result = super.createSuccessAuthentication(principal, authentication, user);
+        List<GrantedAuthority> authorities = result.getAuthorities().stream()
+                .map(authority -> authority instanceof Role role
+                        ? (GrantedAuthority) new SimpleGrantedAuthority(role.getAuthority())
+                        : authority)
+                .toList();
+
+        UsernamePasswordAuthenticationToken authenticated = UsernamePasswordAuthenticationToken.authenticated(
+                AuthenticatedUser.of((User) user), null, authorities);
+        authenticated.setDetails(authentication.getDetails());
+        return authenticated;
+    }
+}
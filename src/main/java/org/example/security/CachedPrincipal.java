@@ -0,0 +1,54 @@
+package org.example.security;
+
+import org.example.entity.Role;
+import org.example.entity.User;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Неизменяемый снимок пользователя для кэша принципалов.
+ * Не держит ссылок на managed-сущности и PersistentSet Hibernate.
+ */
+public record CachedPrincipal(Long id,
+                              String name,
+                              Integer age,
+                              String email,
+                              String password,
+                              List<RoleSnapshot> roles) {
+
+    public record RoleSnapshot(Long id, String name) {
+    }
+
+    public static CachedPrincipal of(User user) {
+        return new CachedPrincipal(
+                user.getId(),
+                user.getName(),
+                user.getAge(),
+                user.getEmail(),
+                user.getPassword(),
+                user.getRoles().stream()
+                        .map(r -> new RoleSnapshot(r.getId(), r.getName()))
+                        .collect(Collectors.toUnmodifiableList()));
+    }
+
+    /**
+     * Каждый раз новый detached User, чтобы вызывающий код не мог изменить закэшированное состояние.
+     */
+    public User toUser() {
+        Set<Role> roleSet = new HashSet<>();
+        for (RoleSnapshot role : roles) {
+            roleSet.add(Role.builder().id(role.id()).name(role.name()).build());
+        }
+        return User.builder()
+                .id(id)
+                .name(name)
+                .age(age)
+                .email(email)
+                .password(password)
+                .roles(roleSet)
+                .build();
+    }
+}
@@ -0,0 +1,239 @@
+package org.example.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.PasswordHashingStatsDto;
+import org.example.exception.PasswordHashingRejectedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Отдельный ограниченный пул для BCrypt.
+ * Не больше threads хэшей одновременно и не больше queue-capacity в очереди,
+ * остальные запросы сразу получают отказ вместо того, чтобы занимать все потоки Tomcat.
+ * Каждая задача в очереди держит ждущий поток Tomcat, поэтому очередь по умолчанию — столько,
+ * сколько пул успевает разобрать за timeout (threads × timeout / target-latency), но не больше
+ * четверти потоков Tomcat. Задача отклоняется и до постановки в очередь, если по текущей
+ * средней длительности хэша она всё равно не дождётся результата за timeout.
+ * Стоимость BCrypt задаётся явно или подбирается при старте под целевую задержку.
+ * Метрики: password.hash (время хэша), password.hash.queue.wait, password.hash.rejected, password.hash.queue.depth.
+ * Пакетные операции (импорт) ставят задачи через submit и забирают результат через await, без своего пула.
+ */
+@Slf4j
+@Component
+public class PasswordHashingService {
+
+    private static final int MIN_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 16;
+    private static final String BCRYPT_ID = "bcrypt";
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final Duration timeout;
+    private final long estimatedHashNanos;
+    private final int strength;
+    private final PasswordEncoder encoder;
+
+    private final Timer hashTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejected;
+
+    public PasswordHashingService(@Value("${app.security.password.threads:0}") int threads,
+                                  @Value("${app.security.password.queue-capacity:0}") int queueCapacity,
+                                  @Value("${app.security.password.timeout:1s}") Duration timeout,
+                                  @Value("${app.security.password.bcrypt-strength:0}") int strength,
+                                  @Value("${app.security.password.target-latency:250ms}") Duration targetLatency,
+                                  @Value("${server.tomcat.threads.max:200}") int requestThreads,
+                                  MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity > 0
+                ? queueCapacity
+                : defaultQueueCapacity(poolSize, timeout, targetLatency, requestThreads);
+        this.timeout = timeout;
+        this.estimatedHashNanos = targetLatency.toNanos();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.queueCapacity), daemonThreads(), new ThreadPoolExecutor.AbortPolicy());
+        this.strength = strength > 0 ? strength : calibrate(targetLatency);
+        // Новые хэши: {bcrypt} с откалиброванной стоимостью. Старые хэши без префикса
+        // или с меньшей стоимостью проверяются как раньше и перехэшируются при успешном входе.
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(this.strength);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(BCRYPT_ID, Map.of(BCRYPT_ID, bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        this.encoder = delegating;
+
+        this.hashTimer = Timer.builder("password.hash")
+                .description("BCrypt hash/verify time in the hashing pool")
+                .tag("strength", String.valueOf(this.strength))
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("password.hash.queue.wait")
+                .description("Time a hashing task waited for a pool thread")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("password.hash.rejected")
+                .description("Hashing tasks rejected because the queue was full or timed out")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.queue.depth", this, PasswordHashingService::getQueueDepth)
+                .register(meterRegistry);
+        log.info("Password hashing: bcrypt strength={}, threads={}, queue capacity={}, timeout={} ms",
+                this.strength, poolSize, this.queueCapacity, timeout.toMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Кодировщик без пула: вызывается в потоке, который уже выделен под хэширование.
+     * Снаружи — только через OffloadingPasswordEncoder или encodeAsync.
+     */
+    public PasswordEncoder encoder() {
+        return encoder;
+    }
+
+    /**
+     * Выполняет задачу в пуле хэширования и ждёт результат не дольше timeout.
+     */
+    public <T> T execute(Supplier<T> task) {
+        return await(submit(task));
+    }
+
+    /**
+     * Ставит encode в пул и сразу возвращает Future; при полной очереди — PasswordHashingRejectedException.
+     */
+    public Future<String> encodeAsync(CharSequence rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    public <T> Future<T> submit(Supplier<T> task) {
+        if (expectedWaitNanos() > timeout.toNanos()) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing is overloaded, retry later");
+        }
+        long submittedAt = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.record(task);
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing queue is full, retry later");
+        }
+    }
+
+    /**
+     * Ждёт результат задачи из submit не дольше timeout.
+     */
+    public <T> T await(Future<T> future) {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing timed out, retry later");
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Password hashing was interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    // Новая задача дождётся всех стоящих впереди, разобранных threads потоками, и своего хэша
+    private long expectedWaitNanos() {
+        double hashNanos = hashTimer.count() > 0 ? hashTimer.mean(TimeUnit.NANOSECONDS) : estimatedHashNanos;
+        double rounds = (double) getQueueDepth() / executor.getMaximumPoolSize() + 1;
+        return (long) (rounds * hashNanos);
+    }
+
+    private static int defaultQueueCapacity(int poolSize, Duration timeout, Duration targetLatency, int requestThreads) {
+        long drainable = poolSize * Math.max(1, timeout.toNanos() / Math.max(1, targetLatency.toNanos()));
+        return (int) Math.max(1, Math.min(drainable, requestThreads / 4));
+    }
+
+    // max у Timer — максимум за последнее окно публикации, а не за всё время
+    public PasswordHashingStatsDto stats() {
+        return PasswordHashingStatsDto.builder()
+                .strength(strength)
+                .threads(getThreads())
+                .active(executor.getActiveCount())
+                .queueDepth(getQueueDepth())
+                .queueCapacity(queueCapacity)
+                .completed(hashTimer.count())
+                .rejected((long) rejected.count())
+                .avgHashMillis(hashTimer.mean(TimeUnit.MILLISECONDS))
+                .maxHashMillis(hashTimer.max(TimeUnit.MILLISECONDS))
+                .avgQueueWaitMillis(queueWaitTimer.mean(TimeUnit.MILLISECONDS))
+                .build();
+    }
+
+    /**
+     * Каждая единица стоимости BCrypt удваивает время, поэтому достаточно одного замера
+     * на минимальной стоимости. Ниже MIN_STRENGTH не опускаемся.
+     */
+    private int calibrate(Duration targetLatency) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_STRENGTH);
+        probe.encode("calibration-warmup");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration-" + i);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        int calibrated = MIN_STRENGTH;
+        long estimate = best;
+        while (calibrated < MAX_STRENGTH && estimate * 2 <= targetLatency.toNanos()) {
+            estimate *= 2;
+            calibrated++;
+        }
+        log.info("BCrypt calibration: strength {} takes {} ms, target {} ms -> strength {}",
+                MIN_STRENGTH, best / 1_000_000, targetLatency.toMillis(), calibrated);
+        return calibrated;
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
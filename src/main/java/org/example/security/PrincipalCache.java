@@ -0,0 +1,137 @@
+package org.example.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.dto.CacheStatsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Ограниченный по размеру и времени жизни кэш аутентифицированных пользователей по email.
+ * Убирает запросы к БД из UserDetailsServiceImpl для повторяющихся HTTP Basic запросов.
+ * Каждый сброс увеличивает поколение до удаления записей; промах берёт поколение до запроса к БД
+ * и кладёт результат, только если поколение не сменилось, — как RoleRegistry. Иначе чтение,
+ * начатое до коммита смены пароля или ролей, вернуло бы старый принципал в кэш уже после сброса
+ * и он жил бы до конца ttl.
+ */
+@Component
+public class PrincipalCache {
+
+    private final Cache<String, CachedPrincipal> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+
+    public PrincipalCache(@Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${app.security.principal-cache.ttl:5m}") Duration ttl,
+                          MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principals");
+    }
+
+    public CachedPrincipal get(String email) {
+        return cache.getIfPresent(email);
+    }
+
+    /**
+     * Поколение для последующего put: брать до чтения пользователя из БД.
+     */
+    public long stamp() {
+        return generation.get();
+    }
+
+    /**
+     * Кладёт принципал, только если с момента stamp не было ни одного сброса. Проверка идёт
+     * под блокировкой ключа в compute: сброс либо сменил поколение раньше неё, либо удалит запись после.
+     */
+    public void put(CachedPrincipal principal, long stamp) {
+        cache.asMap().compute(principal.email(),
+                (email, current) -> generation.get() == stamp ? principal : current);
+    }
+
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        if (cache.asMap().remove(email) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Удаляет записи сразу и ещё раз после коммита: иначе параллельный логин
+     * мог бы прочитать из БД старое состояние до коммита и положить его обратно в кэш.
+     */
+    public void evictAfterCommit(String... emails) {
+        List<String> keys = Arrays.stream(emails).filter(Objects::nonNull).distinct().toList();
+        keys.forEach(this::evict);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    keys.forEach(PrincipalCache.this::evict);
+                }
+            });
+        }
+    }
+
+    /**
+     * Для массовых операций: один проход по кэшу вместо запроса email-ов из БД.
+     */
+    public void evictMatchingAfterCommit(Predicate<CachedPrincipal> predicate) {
+        evictMatching(predicate);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictMatching(predicate);
+                }
+            });
+        }
+    }
+
+    private void evictMatching(Predicate<CachedPrincipal> predicate) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(principal -> {
+            if (predicate.test(principal)) {
+                invalidations.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public void evictAll() {
+        generation.incrementAndGet();
+        invalidations.addAndGet(cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    public CacheStatsDto stats() {
+        CacheStats stats = cache.stats();
+        return CacheStatsDto.builder()
+                .enabled(true)
+                .size(cache.estimatedSize())
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .evictions(stats.evictionCount())
+                .invalidations(invalidations.get())
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Bucket по аутентифицированному пользователю (имя = email), сразу перед авторизацией:
+ * один скрипт с токеном или Basic не выбирает общий лимит с нескольких IP.
+ * Анонимные запросы ограничивает только AdmissionControlFilter.
+ */
+public class PrincipalRateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter perPrincipal;
+    private final SecurityContextHolderStrategy securityContextHolderStrategy = SecurityContextHolder.getContextHolderStrategy();
+
+    public PrincipalRateLimitFilter(RateLimiter perPrincipal) {
+        this.perPrincipal = perPrincipal;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getServletPath().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Authentication authentication = securityContextHolderStrategy.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            long retryAfter = perPrincipal.tryAcquire(authentication.getName());
+            if (retryAfter > 0) {
+                AdmissionControlFilter.reject(response, retryAfter);
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
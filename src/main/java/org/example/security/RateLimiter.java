@@ -0,0 +1,63 @@
+package org.example.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket по ключу в виде GCRA: состояние ключа — одно AtomicLong (theoretical arrival time),
+ * запрос — один CAS, без блокировок и фоновых пополнений.
+ * Ключи живут в Caffeine с maximumSize: при миллионах ключей вытесняются редкие, а вытесненный ключ
+ * начинает с полного bucket. expireAfterAccess = burst / rate — за это время bucket и так полон,
+ * поэтому истечение по времени ничего не теряет.
+ */
+public class RateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final Cache<String, AtomicLong> buckets;
+    private final Counter rejected;
+
+    public RateLimiter(String name, double ratePerSecond, int burst, long maxKeys, MeterRegistry meterRegistry) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit '" + name + "' needs rate > 0 and burst >= 1");
+        }
+        this.emissionIntervalNanos = (long) (Duration.ofSeconds(1).toNanos() / ratePerSecond);
+        this.toleranceNanos = emissionIntervalNanos * burst;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofNanos(toleranceNanos))
+                .recordStats()
+                .build();
+        this.rejected = Counter.builder("rate.limit.rejected")
+                .description("Requests rejected with 429")
+                .tag("limiter", name)
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rate.limit." + name);
+    }
+
+    /**
+     * 0 — запрос пропущен, иначе через сколько наносекунд повторить.
+     */
+    public long tryAcquire(String key) {
+        AtomicLong tat = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long next = Math.max(current, now) + emissionIntervalNanos;
+            long allowedAt = next - toleranceNanos;
+            if (allowedAt > now) {
+                rejected.increment();
+                return allowedAt - now;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
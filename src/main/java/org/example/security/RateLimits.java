@@ -0,0 +1,41 @@
+package org.example.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Лимиты запросов к API: по IP клиента (до аутентификации, в том числе для входа с BCrypt)
+ * и по аутентифицированному пользователю. Фильтры создаёт SecurityConfig, если app.rate-limit.enabled.
+ */
+@Component
+public class RateLimits {
+
+    private final boolean enabled;
+    private final RateLimiter perIp;
+    private final RateLimiter perPrincipal;
+
+    public RateLimits(@Value("${app.rate-limit.enabled:true}") boolean enabled,
+                      @Value("${app.rate-limit.ip.rate:50}") double ipRate,
+                      @Value("${app.rate-limit.ip.burst:100}") int ipBurst,
+                      @Value("${app.rate-limit.principal.rate:20}") double principalRate,
+                      @Value("${app.rate-limit.principal.burst:50}") int principalBurst,
+                      @Value("${app.rate-limit.max-keys:1000000}") long maxKeys,
+                      MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.perIp = new RateLimiter("ip", ipRate, ipBurst, maxKeys, meterRegistry);
+        this.perPrincipal = new RateLimiter("principal", principalRate, principalBurst, maxKeys, meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public RateLimiter perIp() {
+        return perIp;
+    }
+
+    public RateLimiter perPrincipal() {
+        return perPrincipal;
+    }
+}
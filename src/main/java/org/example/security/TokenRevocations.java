@@ -0,0 +1,86 @@
+package org.example.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deny-list access-токенов в памяти процесса.
+ * Отдельные токены (logout) хранятся по jti до их собственного exp, отсечки пользователей (смена ролей,
+ * пароля, удаление) — по id не дольше времени жизни токена: дальше все более старые токены истекли сами.
+ * Без maximumSize: вытеснение по размеру вернуло бы отозванный токен в строй, а размер и так
+ * ограничен числом отзывов за время жизни токена. В кластере отзыв действует только на этом экземпляре.
+ */
+@Component
+public class TokenRevocations {
+
+    private final Cache<String, Long> revokedTokens;
+    private final Cache<Long, Long> userCutoffs;
+
+    public TokenRevocations(@Value("${app.security.token.ttl:15m}") Duration ttl,
+                            MeterRegistry meterRegistry) {
+        this.revokedTokens = Caffeine.newBuilder()
+                .expireAfter(Expiry.<String, Long>creating((jti, expiresAt) ->
+                        Duration.ofSeconds(Math.max(0, expiresAt - epochSecond()))))
+                .recordStats()
+                .build();
+        this.userCutoffs = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, revokedTokens, "revoked.tokens");
+        CaffeineCacheMetrics.monitor(meterRegistry, userCutoffs, "revoked.users");
+    }
+
+    public void revoke(AccessToken token) {
+        revokedTokens.put(token.id(), token.expiresAt());
+    }
+
+    /**
+     * Отзывает все токены пользователей, выпущенные до этой секунды включительно
+     * (iat в секундах; токен, полученный в ту же секунду, тоже придётся перевыпустить).
+     * Сразу и ещё раз после коммита: токен, выданный до коммита, мог прочитать из БД старые роли.
+     */
+    public void revokeUsersAfterCommit(Collection<Long> userIds) {
+        List<Long> ids = List.copyOf(userIds);
+        revokeUsers(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revokeUsers(ids);
+                }
+            });
+        }
+    }
+
+    public void revokeUserAfterCommit(Long userId) {
+        revokeUsersAfterCommit(List.of(userId));
+    }
+
+    public boolean isRevoked(AccessToken token) {
+        Long cutoff = userCutoffs.getIfPresent(token.userId());
+        return (cutoff != null && token.issuedAt() <= cutoff)
+                || revokedTokens.getIfPresent(token.id()) != null;
+    }
+
+    private void revokeUsers(List<Long> userIds) {
+        long now = epochSecond();
+        userIds.forEach(id -> userCutoffs.put(id, now));
+    }
+
+    private static long epochSecond() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+}
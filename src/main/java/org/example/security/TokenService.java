@@ -0,0 +1,188 @@
+package org.example.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.TokenResponseDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.ObjectWriter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Короткоживущие access-токены в формате JWT (HS256): id пользователя, email и имена ролей.
+ * Проверка — HMAC и exp без обращения к БД и без BCrypt. Ключи задаются как kid:base64-секрет через запятую
+ * (app.security.token.keys), подписывается активным (app.security.token.active-key), принимаются все:
+ * для ротации новый ключ добавляется, становится активным, старый убирается через время жизни токена.
+ * Без настроенных ключей генерируется случайный ключ процесса: токены не переживают рестарт.
+ */
+@Slf4j
+@Component
+public class TokenService {
+
+    public static final String TOKEN_TYPE = "Bearer";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64URL_DECODER = Base64.getUrlDecoder();
+
+    record Claims(String jti, String sub, String email, List<String> roles, long iat, long exp) {
+    }
+
+    private final Duration ttl;
+    private final TokenRevocations revocations;
+    private final ObjectReader claimsReader;
+    private final ObjectWriter claimsWriter;
+    // Заголовок у каждого ключа свой и постоянный: kid находится по закодированному заголовку без разбора JSON
+    private final Map<String, SecretKeySpec> keysByHeader = new HashMap<>();
+    private final String activeHeader;
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(TokenService::newMac);
+
+    public TokenService(@Value("${app.security.token.keys:}") String keys,
+                        @Value("${app.security.token.active-key:}") String activeKey,
+                        @Value("${app.security.token.ttl:15m}") Duration ttl,
+                        TokenRevocations revocations,
+                        ObjectMapper objectMapper) {
+        this.ttl = ttl;
+        this.revocations = revocations;
+        this.claimsReader = objectMapper.readerFor(Claims.class);
+        this.claimsWriter = objectMapper.writerFor(Claims.class);
+
+        Map<String, byte[]> secrets = parseKeys(keys);
+        if (secrets.isEmpty()) {
+            byte[] secret = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(secret);
+            secrets.put("local", secret);
+            activeKey = "local";
+            log.warn("app.security.token.keys is not set: tokens are signed with a random key and die with this process");
+        } else if (activeKey.isBlank()) {
+            activeKey = secrets.keySet().iterator().next();
+        }
+        if (!secrets.containsKey(activeKey)) {
+            throw new IllegalStateException("app.security.token.active-key '" + activeKey + "' is not among app.security.token.keys");
+        }
+
+        String active = null;
+        for (Map.Entry<String, byte[]> entry : secrets.entrySet()) {
+            String header = BASE64URL.encodeToString(("{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"" + entry.getKey() + "\"}")
+                    .getBytes(StandardCharsets.UTF_8));
+            keysByHeader.put(header, new SecretKeySpec(entry.getValue(), HMAC_ALGORITHM));
+            if (entry.getKey().equals(activeKey)) {
+                active = header;
+            }
+        }
+        this.activeHeader = active;
+    }
+
+    public TokenResponseDto issue(AuthenticatedUser user) {
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        Claims claims = new Claims(
+                UUID.randomUUID().toString(),
+                String.valueOf(user.id()),
+                user.email(),
+                user.roles(),
+                now,
+                now + ttl.toSeconds());
+
+        String signingInput = activeHeader + "." + BASE64URL.encodeToString(claimsWriter.writeValueAsBytes(claims));
+        String token = signingInput + "." + BASE64URL.encodeToString(sign(keysByHeader.get(activeHeader), signingInput));
+        return TokenResponseDto.builder()
+                .accessToken(token)
+                .tokenType(TOKEN_TYPE)
+                .expiresIn(ttl.toSeconds())
+                .build();
+    }
+
+    /**
+     * Подпись, срок действия и deny-list. Любая проблема — BadCredentialsException без подробностей для клиента.
+     */
+    public AccessToken verify(String token) {
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first < 0 || second < 0 || token.indexOf('.', second + 1) >= 0) {
+            throw new BadCredentialsException("Malformed token");
+        }
+        SecretKeySpec key = keysByHeader.get(token.substring(0, first));
+        if (key == null) {
+            throw new BadCredentialsException("Unknown token key");
+        }
+
+        Claims claims;
+        Long userId;
+        try {
+            byte[] signature = BASE64URL_DECODER.decode(token.substring(second + 1));
+            if (!MessageDigest.isEqual(signature, sign(key, token.substring(0, second)))) {
+                throw new BadCredentialsException("Invalid token signature");
+            }
+            claims = claimsReader.readValue(BASE64URL_DECODER.decode(token.substring(first + 1, second)));
+            userId = Long.valueOf(claims.sub());
+        } catch (IllegalArgumentException | JacksonException ex) {
+            throw new BadCredentialsException("Malformed token", ex);
+        }
+
+        if (claims.exp() <= TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())) {
+            throw new BadCredentialsException("Token expired");
+        }
+        AccessToken accessToken = new AccessToken(claims.jti(), userId, claims.email(),
+                claims.roles() == null ? List.of() : claims.roles(), claims.iat(), claims.exp());
+        if (revocations.isRevoked(accessToken)) {
+            throw new BadCredentialsException("Token revoked");
+        }
+        return accessToken;
+    }
+
+    private byte[] sign(SecretKeySpec key, String signingInput) {
+        Mac hmac = mac.get();
+        try {
+            hmac.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid token key", e);
+        }
+        return hmac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Map<String, byte[]> parseKeys(String keys) {
+        Map<String, byte[]> secrets = new LinkedHashMap<>();
+        for (String entry : keys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int colon = entry.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalStateException("app.security.token.keys entries must look like kid:base64-secret");
+            }
+            String kid = entry.substring(0, colon).trim();
+            byte[] secret = Base64.getDecoder().decode(entry.substring(colon + 1).trim());
+            if (secret.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("Token key '" + kid + "' must be at least " + MIN_SECRET_BYTES + " bytes");
+            }
+            secrets.put(kid, secret);
+        }
+        return secrets;
+    }
+
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(HMAC_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
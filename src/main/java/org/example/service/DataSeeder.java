@@ -0,0 +1,193 @@
+package org.example.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Role;
+import org.example.entity.User;
+import org.example.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Идемпотентные начальные данные: роли ROLE_ADMIN/ROLE_USER, admin@gmail.com/admin и user@gmail.com/user
+ * с фиксированными id ниже 1000 (sequence начинаются с 1001) и заранее посчитанными BCrypt-хэшами,
+ * поэтому при старте нет ни SELECT count(), ни хэширования. INSERT ... ON DUPLICATE KEY UPDATE
+ * ничего не перезаписывает: изменённые в БД пароли и роли сохраняются.
+ * Плюс app.seed.users синтетических пользователей seed-N@example.org (пароль "password") для нагрузочных тестов.
+ * app.seed.mode: sync — до готовности приложения, async — в отдельном потоке после ApplicationReadyEvent, off.
+ */
+@Slf4j
+@Component
+public class DataSeeder implements ApplicationRunner {
+
+    public static final String SEED_EMAIL_DOMAIN = "@example.org";
+
+    // BCrypt cost 10; при входе перехэшируются под текущую стоимость (см. UserDetailsServiceImpl.updatePassword)
+    private static final String ADMIN_PASSWORD_HASH = "{bcrypt}$2a$10$cKxep4AnxGRHCnM7vnBos.egWOZ/ygmlXByYOraT2pDMKN/nQPeoG";
+    private static final String USER_PASSWORD_HASH = "{bcrypt}$2a$10$zy5wIDh3LrOmLLrq0lbxiOvWgfxgYIhrftev.KpGr2YyFwqBLLDqG";
+    private static final String SEED_PASSWORD_HASH = "{bcrypt}$2a$10$NWw6YeT66NU0Bh2t3tngxuyRAW9MFm47WfqXl7q/OLgCtSC8QPH/W";
+
+    private static final long ROLE_ADMIN_ID = 1;
+    private static final long ROLE_USER_ID = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final UserRepository userRepository;
+    private final RoleRegistry roleRegistry;
+    private final DataVersions dataVersions;
+    private final ApplicationStartup applicationStartup;
+    private final String mode;
+    private final int seedUsers;
+    private final int chunkSize;
+
+    public DataSeeder(JdbcTemplate jdbcTemplate,
+                      TransactionTemplate transactionTemplate,
+                      EntityManager entityManager,
+                      UserRepository userRepository,
+                      RoleRegistry roleRegistry,
+                      DataVersions dataVersions,
+                      ApplicationStartup applicationStartup,
+                      @Value("${app.seed.mode:sync}") String mode,
+                      @Value("${app.seed.users:0}") int seedUsers,
+                      @Value("${app.seed.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.userRepository = userRepository;
+        this.roleRegistry = roleRegistry;
+        this.dataVersions = dataVersions;
+        this.applicationStartup = applicationStartup;
+        this.mode = mode;
+        this.seedUsers = seedUsers;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if ("sync".equals(mode)) {
+            seed();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedAfterReady() {
+        if ("async".equals(mode)) {
+            Thread thread = new Thread(this::seed, "data-seeder");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    void seed() {
+        StartupStep step = applicationStartup.start("app.seed")
+                .tag("mode", mode)
+                .tag("users", String.valueOf(seedUsers));
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> seedDefaults());
+            // Строки вставлены мимо JPA: листенеры не сработали, обновляем кэши сами
+            roleRegistry.refresh();
+            dataVersions.rolesChanged();
+
+            int created = seedUsers > 0 ? seedSyntheticUsers() : 0;
+            if (created > 0) {
+                dataVersions.usersChanged();
+            }
+            log.info("Seed data ensured ({} mode, {} new synthetic users) in {} ms",
+                    mode, created, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException ex) {
+            step.tag("error", ex.getClass().getSimpleName());
+            log.error("Seeding failed", ex);
+            if ("sync".equals(mode)) {
+                throw ex;
+            }
+        } finally {
+            step.end();
+        }
+    }
+
+    private void seedDefaults() {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO roles (id, name, version) VALUES (?, ?, 0) ON DUPLICATE KEY UPDATE id = id",
+                List.of(new Object[]{ROLE_ADMIN_ID, "ROLE_ADMIN"}, new Object[]{ROLE_USER_ID, "ROLE_USER"}));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users (id, name, age, email, password, version) VALUES (?, ?, ?, ?, ?, 0) " +
+                        "ON DUPLICATE KEY UPDATE id = id",
+                List.of(new Object[]{1L, "admin", 25, "admin@gmail.com", ADMIN_PASSWORD_HASH},
+                        new Object[]{2L, "user", 30, "user@gmail.com", USER_PASSWORD_HASH}));
+        // По email и имени роли: если пользователь уже существовал под другим id, роли достанутся ему
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users_roles (user_id, role_id) " +
+                        "SELECT u.id, r.id FROM users u JOIN roles r ON r.name = ? WHERE u.email = ? " +
+                        "AND NOT EXISTS (SELECT 1 FROM users_roles ur WHERE ur.user_id = u.id AND ur.role_id = r.id)",
+                List.of(new Object[]{"ROLE_ADMIN", "admin@gmail.com"},
+                        new Object[]{"ROLE_USER", "admin@gmail.com"},
+                        new Object[]{"ROLE_USER", "user@gmail.com"}));
+    }
+
+    /**
+     * Досоздаёт недостающих из seed-0..seed-(N-1). Если их уже не меньше N, повторный старт
+     * обходится одним COUNT. Иначе порции проверяются по email (один IN-запрос на порцию) и
+     * вставляются только отсутствующие — удалённые нагрузочным тестом пользователи засеваются заново,
+     * а не сталкиваются с уже существующими по unique-индексу email.
+     */
+    private int seedSyntheticUsers() {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE email LIKE ?", Integer.class, "seed-%" + SEED_EMAIL_DOMAIN);
+        if (existing != null && existing >= seedUsers) {
+            return 0;
+        }
+        int created = 0;
+        for (int chunkStart = 0; chunkStart < seedUsers; chunkStart += chunkSize) {
+            int first = chunkStart;
+            int last = Math.min(chunkStart + chunkSize, seedUsers);
+            Integer inserted = transactionTemplate.execute(status -> {
+                List<String> emails = new ArrayList<>(last - first);
+                for (int i = first; i < last; i++) {
+                    emails.add(seedEmail(i));
+                }
+                Set<String> present = userRepository.findExistingEmails(emails);
+                if (present.size() == emails.size()) {
+                    return 0;
+                }
+                Role roleUser = roleRegistry.getReference("ROLE_USER");
+                int count = 0;
+                for (int i = first; i < last; i++) {
+                    if (present.contains(seedEmail(i))) {
+                        continue;
+                    }
+                    entityManager.persist(User.builder()
+                            .email(seedEmail(i))
+                            .password(SEED_PASSWORD_HASH)
+                            .name("seed" + i)
+                            .age(18 + i % 60)
+                            .roles(Set.of(roleUser))
+                            .build());
+                    count++;
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return count;
+            });
+            created += inserted == null ? 0 : inserted;
+        }
+        return created;
+    }
+
+    private static String seedEmail(int index) {
+        return "seed-" + index + SEED_EMAIL_DOMAIN;
+    }
+}
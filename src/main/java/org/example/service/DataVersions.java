@@ -0,0 +1,49 @@
+package org.example.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Версии коллекций для ETag списков пользователей и ролей — строки таблицы data_versions,
+ * общие для всех экземпляров. Версия поднимается UPDATE-ом в той же транзакции, что и изменение:
+ * новая версия становится видна ровно вместе с данными, а запись на любом экземпляре меняет ETag на всех.
+ * Читатель берёт версию ДО чтения данных и в той же read-only транзакции, что и данные:
+ * JdbcTemplate работает на соединении транзакции, так что при чтении с реплик обе выборки идут
+ * в одну базу. Новые данные в худшем случае получат старую версию (лишний 200), но не наоборот
+ * (ложный 304). Вызов вне транзакции всегда идёт на primary и для ETag ответа с телом не годится.
+ * Строка версии заблокирована до коммита, поэтому вызывать в конце пишущей транзакции.
+ */
+@Component
+public class DataVersions {
+
+    private static final String USERS = "users";
+    private static final String ROLES = "roles";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DataVersions(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long users() {
+        return read(USERS);
+    }
+
+    public long roles() {
+        return read(ROLES);
+    }
+
+    public void usersChanged() {
+        jdbcTemplate.update("UPDATE data_versions SET version = version + 1 WHERE name = ?", USERS);
+    }
+
+    // Имена ролей входят в UserDto, поэтому меняется и версия пользователей; один UPDATE — один порядок блокировок
+    public void rolesChanged() {
+        jdbcTemplate.update("UPDATE data_versions SET version = version + 1 WHERE name IN (?, ?)", ROLES, USERS);
+    }
+
+    private long read(String name) {
+        Long version = jdbcTemplate.queryForObject("SELECT version FROM data_versions WHERE name = ?", Long.class, name);
+        return version == null ? 0 : version;
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.dto.RoleDto;
+import org.example.entity.Role;
+import org.example.exception.RoleNotFoundException;
+import org.example.repository.RoleRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Неизменяемый снимок таблицы roles в памяти: имя -> id и готовый список RoleDto.
+ * Роли для записи отдаются как getReferenceById-прокси, без SELECT на каждое имя.
+ * Снимок заменяется целиком, поэтому читатели видят либо старое, либо новое состояние.
+ * Каждый сброс увеличивает поколение; перечитанный снимок публикуется CAS только в том поколении,
+ * в котором начиналось чтение — иначе перечитывание, начатое до коммита, вернуло бы устаревшие роли
+ * уже после сброса, и их больше никто бы не сбросил.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoleRegistry {
+
+    private final RoleRepository roleRepository;
+
+    private final AtomicReference<State> state = new AtomicReference<>(new State(0, null));
+
+    private record Snapshot(Map<String, Long> idsByName, List<RoleDto> roles) {
+    }
+
+    // snapshot == null — поколение сброшено и ещё не перечитано
+    private record State(long generation, Snapshot snapshot) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refresh() {
+        load();
+    }
+
+    /**
+     * Сбрасывает снимок после коммита текущей транзакции (или сразу, если транзакции нет).
+     * Следующее обращение перечитает роли из БД.
+     */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    public List<RoleDto> getAllRoles() {
+        return current().roles();
+    }
+
+    public Long getId(String name) {
+        Long id = current().idsByName().get(name);
+        if (id == null) {
+            throw new RoleNotFoundException("Role not found: " + name);
+        }
+        return id;
+    }
+
+    public Role getReference(String name) {
+        return roleRepository.getReferenceById(getId(name));
+    }
+
+    public Set<Role> getReferences(Collection<String> names) {
+        Set<Role> roles = new HashSet<>();
+        for (String name : names) {
+            roles.add(getReference(name));
+        }
+        return roles;
+    }
+
+    private Snapshot current() {
+        Snapshot current = state.get().snapshot();
+        return current != null ? current : load();
+    }
+
+    private void invalidate() {
+        state.updateAndGet(s -> new State(s.generation() + 1, null));
+    }
+
+    // Поколение берётся до запроса: сброс во время чтения делает CAS неуспешным, и снимок
+    // не публикуется (вызывающий всё равно получает его — он прочитан не раньше начала вызова)
+    private Snapshot load() {
+        State before = state.get();
+        Map<String, Long> idsByName = new HashMap<>();
+        List<RoleDto> roles = new ArrayList<>();
+        for (Role role : roleRepository.findAll(Sort.by("id"))) {
+            idsByName.put(role.getName(), role.getId());
+            roles.add(RoleDto.builder().id(role.getId()).name(role.getName()).build());
+        }
+        Snapshot loaded = new Snapshot(Map.copyOf(idsByName), List.copyOf(roles));
+        state.compareAndSet(before, new State(before.generation(), loaded));
+        return loaded;
+    }
+}
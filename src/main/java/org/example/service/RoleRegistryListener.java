@@ -0,0 +1,27 @@
+package org.example.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.example.entity.Role;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * JPA-листенер Role: любое изменение ролей сбрасывает RoleRegistry после коммита и поднимает версию данных в той же транзакции.
+ * Создаётся Hibernate через SpringBeanContainer, поэтому зависимости внедряются конструктором.
+ */
+@RequiredArgsConstructor
+public class RoleRegistryListener {
+
+    private final ObjectProvider<RoleRegistry> roleRegistry;
+    private final ObjectProvider<DataVersions> dataVersions;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onRoleChanged(Role role) {
+        roleRegistry.getObject().invalidateAfterCommit();
+        dataVersions.getObject().rolesChanged();
+    }
+}
@@ -0,0 +1,365 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.UserChangeDto;
+import org.example.exception.TooManySubscribersException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Раздаёт события outbox подписчикам /api/users/changes.
+ * Один поток опрашивает user_changes (сразу после коммита на этом экземпляре, иначе раз в poll-interval)
+ * и раскладывает события по ограниченным очередям подписчиков, ничего не ожидая; в сеть пишет отдельный
+ * поток каждого подписчика. Переполненная очередь (медленный клиент) закрывает поток: EventSource
+ * переподключается с Last-Event-ID и дочитывает пропущенное из outbox, не задерживая остальных.
+ * Дырка в id (транзакция с меньшим id ещё не закоммичена) держит ленту не дольше gap-timeout,
+ * потом курсор идёт дальше, а пропущенные id запоминаются и перечитываются при каждом опросе до gap-horizon:
+ * поздно закоммиченное событие доставляется вне очереди (без SSE id, чтобы не отматывать Last-Event-ID
+ * клиента), а дырки от откаченных транзакций просто истекают.
+ */
+@Slf4j
+@Component
+public class UserChangeDispatcher {
+
+    private static final int BATCH_SIZE = 500;
+    private static final Duration GAP_RECHECK = Duration.ofMillis(50);
+    private static final Duration PURGE_INTERVAL = Duration.ofMinutes(1);
+    // Больше не отслеживаем: такие скачки auto-increment — выделенные, но не использованные диапазоны
+    private static final int MAX_GAP_IDS = 10_000;
+
+    private final UserChangeOutbox outbox;
+    private final Duration pollInterval;
+    private final Duration gapTimeout;
+    private final Duration gapHorizon;
+    private final Duration retention;
+    private final Duration heartbeat;
+    private final Duration emitterTimeout;
+    private final int queueCapacity;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Место берётся до создания подписчика и его потока и возвращается в close(), ровно один раз
+    private final Semaphore subscriberSlots;
+    private final AtomicLong subscriberNumbers = new AtomicLong();
+    private final Counter overflows;
+    private final Counter lateDeliveries;
+    // Пропущенные id -> когда пропущены (System.nanoTime); только поток диспетчера
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    // Курсор и список подписчиков меняются под одной блокировкой: новый подписчик не пропустит и не получит дважды
+    private final Object lock = new Object();
+    private volatile long cursor;
+    private volatile boolean running;
+    private Thread thread;
+
+    public UserChangeDispatcher(UserChangeOutbox outbox,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.changes.poll-interval:1s}") Duration pollInterval,
+                                @Value("${app.changes.gap-timeout:200ms}") Duration gapTimeout,
+                                @Value("${app.changes.gap-horizon:5m}") Duration gapHorizon,
+                                @Value("${app.changes.retention:1h}") Duration retention,
+                                @Value("${app.changes.heartbeat:15s}") Duration heartbeat,
+                                @Value("${app.changes.emitter-timeout:30m}") Duration emitterTimeout,
+                                @Value("${app.changes.queue-capacity:1000}") int queueCapacity,
+                                @Value("${app.changes.max-subscribers:100}") int maxSubscribers) {
+        this.outbox = outbox;
+        this.pollInterval = pollInterval;
+        this.gapTimeout = gapTimeout;
+        this.gapHorizon = gapHorizon;
+        this.retention = retention;
+        this.heartbeat = heartbeat;
+        this.emitterTimeout = emitterTimeout;
+        this.queueCapacity = queueCapacity;
+        this.subscriberSlots = new Semaphore(maxSubscribers);
+        this.overflows = Counter.builder("user.changes.overflows")
+                .description("Change-feed subscribers disconnected because their queue was full")
+                .register(meterRegistry);
+        this.lateDeliveries = Counter.builder("user.changes.late")
+                .description("Change events committed after their id had been skipped as a gap")
+                .register(meterRegistry);
+        Gauge.builder("user.changes.subscribers", subscribers, List::size)
+                .description("Open /api/users/changes streams")
+                .register(meterRegistry);
+    }
+
+    // После миграций и сидирования, а не на refresh: старт читает курсор из БД
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        cursor = outbox.maxId();
+        running = true;
+        thread = new Thread(this::run, "user-changes-dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        subscribers.forEach(Subscriber::close);
+    }
+
+    /**
+     * lastEventId == null — только новые события; иначе сначала всё после lastEventId из outbox.
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        if (!subscriberSlots.tryAcquire()) {
+            throw new TooManySubscribersException("Too many change-feed subscribers, retry later");
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscriber subscriber;
+        synchronized (lock) {
+            subscriber = new Subscriber(emitter, lastEventId, cursor);
+            subscribers.add(subscriber);
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(ex -> subscriber.close());
+        try {
+            subscriber.start();
+        } catch (RuntimeException | OutOfMemoryError ex) {
+            // Поток не создан: вернуть место, иначе лимит навсегда уменьшится на единицу
+            subscriber.close();
+            throw ex;
+        }
+        return emitter;
+    }
+
+    private void run() {
+        long gapSince = 0;
+        long nextPurge = System.nanoTime();
+        while (running) {
+            try {
+                List<UserChangeDto> rows = outbox.readAfter(cursor, Long.MAX_VALUE, BATCH_SIZE);
+                boolean waitingForGap = false;
+                for (UserChangeDto row : rows) {
+                    if (row.getId() != cursor + 1) {
+                        if (gapSince == 0) {
+                            gapSince = System.nanoTime();
+                        }
+                        if (System.nanoTime() - gapSince < gapTimeout.toNanos()) {
+                            waitingForGap = true;
+                            break;
+                        }
+                        rememberGap(cursor + 1, row.getId() - 1);
+                    }
+                    gapSince = 0;
+                    publish(row);
+                }
+                recheckGaps();
+
+                if (System.nanoTime() >= nextPurge) {
+                    int purged = outbox.purgeOlderThan(retention);
+                    if (purged > 0) {
+                        log.debug("Purged {} user_changes rows older than {}", purged, retention);
+                    }
+                    nextPurge = System.nanoTime() + PURGE_INTERVAL.toNanos();
+                }
+
+                if (waitingForGap) {
+                    Thread.sleep(GAP_RECHECK.toMillis());
+                } else if (rows.size() < BATCH_SIZE) {
+                    outbox.awaitCommitted(pollInterval);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Change feed dispatch failed, retrying in {}", pollInterval, ex);
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void publish(UserChangeDto change) {
+        synchronized (lock) {
+            cursor = change.getId();
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(new Delivery(change, false));
+            }
+        }
+    }
+
+    // Курсор не двигается: событие старше уже отданных
+    private void publishLate(UserChangeDto change) {
+        lateDeliveries.increment();
+        Delivery delivery = new Delivery(change, true);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(delivery);
+        }
+    }
+
+    private void rememberGap(long from, long to) {
+        long now = System.nanoTime();
+        if (to - from + 1 > MAX_GAP_IDS) {
+            log.debug("Not tracking user_changes ids {}..{}: gap is larger than {}", from, to, MAX_GAP_IDS);
+            return;
+        }
+        for (long id = from; id <= to; id++) {
+            gaps.putIfAbsent(id, now);
+        }
+        Iterator<Long> oldest = gaps.keySet().iterator();
+        while (gaps.size() > MAX_GAP_IDS) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    // Каждый опрос: пропущенные id по первичному ключу, порциями; найденные — вне очереди, старые — забываем
+    private void recheckGaps() {
+        if (gaps.isEmpty()) {
+            return;
+        }
+        long expired = System.nanoTime() - gapHorizon.toNanos();
+        gaps.values().removeIf(skippedAt -> skippedAt - expired < 0);
+        List<Long> ids = new ArrayList<>(gaps.keySet());
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            for (UserChangeDto change : outbox.readIds(ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())))) {
+                gaps.remove(change.getId());
+                publishLate(change);
+            }
+        }
+    }
+
+    private record Delivery(UserChangeDto change, boolean late) {
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Long resumeAfter;
+        private final long startCursor;
+        private final BlockingQueue<Delivery> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private Thread sender;
+        private long lastSent;
+
+        private Subscriber(SseEmitter emitter, Long resumeAfter, long startCursor) {
+            this.emitter = emitter;
+            this.resumeAfter = resumeAfter;
+            this.startCursor = startCursor;
+        }
+
+        void start() {
+            sender = new Thread(this::send, "user-changes-sse-" + subscriberNumbers.incrementAndGet());
+            sender.setDaemon(true);
+            sender.start();
+        }
+
+        // Вызывается потоком диспетчера: никогда не ждёт
+        void offer(Delivery delivery) {
+            if (!queue.offer(delivery)) {
+                overflows.increment();
+                log.debug("Change feed subscriber is too slow, closing its stream");
+                close();
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                subscriberSlots.release();
+                if (sender != null && sender != Thread.currentThread()) {
+                    sender.interrupt();
+                }
+                try {
+                    emitter.complete();
+                } catch (RuntimeException ignored) {
+                    // Соединение уже закрыто
+                }
+            }
+        }
+
+        private void send() {
+            lastSent = startCursor;
+            try {
+                if (resumeAfter != null) {
+                    replay(resumeAfter);
+                }
+                while (!closed.get()) {
+                    Delivery delivery = queue.poll(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+                    if (delivery == null) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else if (delivery.late()) {
+                        emitLate(delivery.change());
+                    } else if (delivery.change().getId() > lastSent) {
+                        emit(delivery.change());
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException ex) {
+                log.debug("Change feed subscriber disconnected: {}", ex.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        // События между Last-Event-ID и моментом подписки берутся из outbox, дальше идут живые
+        private void replay(long after) throws IOException {
+            if (after == startCursor) {
+                return;
+            }
+            Long minId = outbox.minId();
+            if (after > startCursor || minId == null || after < minId - 1) {
+                // Клиент впереди (другая БД) или его позиция уже вычищена: догнать нечем
+                emit(UserChangeDto.builder()
+                        .id(startCursor)
+                        .operation(UserChangeDto.Operation.RELOAD)
+                        .fields(List.of())
+                        .build());
+                return;
+            }
+            List<UserChangeDto> rows;
+            do {
+                rows = outbox.readAfter(after, startCursor, BATCH_SIZE);
+                for (UserChangeDto row : rows) {
+                    emit(row);
+                    after = row.getId();
+                }
+            } while (rows.size() == BATCH_SIZE && !closed.get());
+        }
+
+        private void emit(UserChangeDto change) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(change.getId()))
+                    .name("user")
+                    .data(change, MediaType.APPLICATION_JSON));
+            lastSent = change.getId();
+        }
+
+        // Без SSE id: иначе Last-Event-ID клиента откатился бы назад и переподключение повторило бы всё после него
+        private void emitLate(UserChangeDto change) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .name("user")
+                    .data(change, MediaType.APPLICATION_JSON));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.service;
+
+import org.example.dto.UserChangeDto;
+import org.example.dto.UserChangeDto.Operation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactional outbox изменений пользователей (таблица user_changes).
+ * Запись идёт через JdbcTemplate в текущей транзакции JPA: событие появляется тогда и только тогда,
+ * когда закоммичено само изменение. После коммита будится UserChangeDispatcher этого экземпляра,
+ * остальные экземпляры увидят строку при следующем опросе.
+ */
+@Component
+public class UserChangeOutbox {
+
+    private static final String INSERT =
+            "INSERT INTO user_changes (operation, user_id, version, fields) VALUES (?, ?, ?, ?)";
+
+    private static final RowMapper<UserChangeDto> ROW_MAPPER = (rs, rowNum) -> {
+        String fields = rs.getString("fields");
+        long userId = rs.getLong("user_id");
+        boolean hasUser = !rs.wasNull();
+        long version = rs.getLong("version");
+        boolean hasVersion = !rs.wasNull();
+        return UserChangeDto.builder()
+                .id(rs.getLong("id"))
+                .operation(Operation.valueOf(rs.getString("operation")))
+                .userId(hasUser ? userId : null)
+                .version(hasVersion ? version : null)
+                .fields(fields == null || fields.isEmpty() ? List.of() : Arrays.asList(fields.split(",")))
+                .build();
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Semaphore committed = new Semaphore(0);
+
+    public UserChangeOutbox(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void recordCreated(Long userId, Long version) {
+        record(Operation.CREATED, userId, version, List.of());
+    }
+
+    public void recordUpdated(Long userId, Long version, Collection<String> fields) {
+        record(Operation.UPDATED, userId, version, fields);
+    }
+
+    public void recordDeleted(Long userId) {
+        record(Operation.DELETED, userId, null, List.of());
+    }
+
+    /**
+     * Один батч на набор пользователей (массовые удаление, смена ролей, импорт).
+     */
+    public void recordAll(Operation operation, Collection<Long> userIds, Collection<String> fields) {
+        String joined = joinFields(fields);
+        jdbcTemplate.batchUpdate(INSERT, userIds, 500, (ps, userId) -> {
+            ps.setString(1, operation.name());
+            ps.setLong(2, userId);
+            ps.setNull(3, Types.BIGINT);
+            ps.setString(4, joined);
+        });
+        wakeDispatcherAfterCommit();
+    }
+
+    public void recordReload() {
+        record(Operation.RELOAD, null, null, List.of());
+    }
+
+    List<UserChangeDto> readAfter(long afterId, long upToId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, operation, user_id, version, fields FROM user_changes " +
+                        "WHERE id > ? AND id <= ? ORDER BY id LIMIT ?",
+                ROW_MAPPER, afterId, upToId, limit);
+    }
+
+    List<UserChangeDto> readIds(Collection<Long> ids) {
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.query(
+                "SELECT id, operation, user_id, version, fields FROM user_changes WHERE id IN (" + placeholders + ") ORDER BY id",
+                ROW_MAPPER, ids.toArray());
+    }
+
+    long maxId() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user_changes", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    Long minId() {
+        return jdbcTemplate.queryForObject("SELECT MIN(id) FROM user_changes", Long.class);
+    }
+
+    int purgeOlderThan(Duration retention) {
+        return jdbcTemplate.update("DELETE FROM user_changes WHERE created_at < ?",
+                Timestamp.from(Instant.now().minus(retention)));
+    }
+
+    /**
+     * Ждёт коммита новых событий на этом экземпляре не дольше timeout.
+     */
+    void awaitCommitted(Duration timeout) throws InterruptedException {
+        if (committed.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            committed.drainPermits();
+        }
+    }
+
+    private void record(Operation operation, Long userId, Long version, Collection<String> fields) {
+        jdbcTemplate.update(INSERT, operation.name(), userId, version, joinFields(fields));
+        wakeDispatcherAfterCommit();
+    }
+
+    private static String joinFields(Collection<String> fields) {
+        return fields.isEmpty() ? null : String.join(",", fields);
+    }
+
+    private void wakeDispatcherAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committed.release();
+                }
+            });
+        } else {
+            committed.release();
+        }
+    }
+}
@@ -3,8 +3,10 @@ package org.example.service;
 import lombok.RequiredArgsConstructor;
 import org.example.entity.User;
 import org.example.repository.UserRepository;
-import org.hibernate.Hibernate;
+import org.example.security.CachedPrincipal;
+import org.example.security.PrincipalCache;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -12,19 +14,42 @@ import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final DataVersions dataVersions;
 
+    /**
+     * Без @Transactional: при попадании в кэш соединение с БД не берётся вовсе,
+     * при промахе пользователь и роли читаются одним запросом (LEFT JOIN FETCH).
+     * Поколение кэша берётся до запроса, чтобы не положить в кэш состояние, сброшенное во время чтения.
+     */
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        return userRepository.findByEmail(email)
-                .map(this::initializeUser)
-                .orElseThrow(() -> new UsernameNotFoundException("User with email=" + email + " not found"));
+        CachedPrincipal cached = principalCache.get(email);
+        if (cached == null) {
+            long stamp = principalCache.stamp();
+            cached = userRepository.findByEmailWithRoles(email)
+                    .map(CachedPrincipal::of)
+                    .orElseThrow(() -> new UsernameNotFoundException("User with email=" + email + " not found"));
+            principalCache.put(cached, stamp);
+        }
+        return cached.toUser();
     }
 
-    private User initializeUser(User user) {
-        Hibernate.initialize(user.getRoles()); // LazyInitializationException
+    /**
+     * Вызывается DaoAuthenticationProvider после успешного входа, если хэш устарел
+     * (нет префикса {bcrypt} или стоимость ниже текущей): сохраняем новый хэш.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordByEmail(user.getUsername(), newPassword);
+        principalCache.evictAfterCommit(user.getUsername());
+        dataVersions.usersChanged();
+        if (user instanceof User entity) {
+            entity.setPassword(newPassword);
+        }
         return user;
     }
 }
@@ -0,0 +1,238 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.UserExportDto;
+import org.example.exception.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Выгрузка всех пользователей с ролями одним forward-only курсором по JDBC, без JPA:
+ * ни persistence context, ни ModelMapper, в памяти только текущий пользователь и буфер вывода.
+ * Строки идут по users.id, поэтому роли одного пользователя приходят подряд и склеиваются на лету.
+ * Чтение в одной read-only транзакции: на MySQL (REPEATABLE READ) это согласованный снимок на момент начала.
+ */
+@Slf4j
+@Service
+public class UserExportService {
+
+    private static final String EXPORT_QUERY =
+            "SELECT u.id, u.name, u.age, u.email, u.version, r.name AS role_name FROM users u " +
+                    "LEFT JOIN users_roles ur ON ur.user_id = u.id " +
+                    "LEFT JOIN roles r ON r.id = ur.role_id " +
+                    "ORDER BY u.id";
+    private static final String CSV_HEADER = "id,name,age,email,version,roles\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        public String fileName() {
+            return "users." + extension;
+        }
+
+        public static Format of(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException("Unsupported export format '" + value + "', expected ndjson or csv");
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter userWriter;
+    private final int fetchSize;
+    private final Counter exportedRows;
+
+    public UserExportService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.userWriter = objectMapper.writerFor(UserExportDto.class);
+        this.fetchSize = fetchSize;
+        this.exportedRows = Counter.builder("user.export.rows")
+                .description("Users written by /api/users/export")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Пишет всех пользователей в out и возвращает их число. out не закрывается, только сбрасывается.
+     */
+    public long export(Format format, OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(buffered) : new NdjsonRowWriter(buffered);
+        writer.start();
+        long started = System.nanoTime();
+        long count;
+        try {
+            count = readOnlyTransaction.execute(status -> {
+                UserAssembler assembler = new UserAssembler(writer);
+                jdbcTemplate.query(this::prepareCursor, assembler);
+                assembler.finish();
+                return assembler.count;
+            });
+        } catch (UncheckedIOException ex) {
+            // Клиент оборвал загрузку: курсор закрыт вместе с транзакцией
+            throw ex.getCause();
+        }
+        buffered.flush();
+        log.info("Exported {} users as {} in {} ms", count, format, (System.nanoTime() - started) / 1_000_000);
+        return count;
+    }
+
+    // MySQL Connector/J без useCursorFetch читает весь результат в память; MIN_VALUE включает построчную выдачу
+    private PreparedStatement prepareCursor(Connection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                EXPORT_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : fetchSize);
+        return statement;
+    }
+
+    // Склеивает строки JOIN одного пользователя в UserExportDto и сразу отдаёт его writer'у
+    private final class UserAssembler implements RowCallbackHandler {
+
+        private final RowWriter writer;
+        private UserExportDto current;
+        private long count;
+
+        private UserAssembler(RowWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            if (current == null || current.id() != id) {
+                finish();
+                current = new UserExportDto(id, rs.getString("name"), rs.getInt("age"), rs.getString("email"),
+                        rs.getLong("version"), new ArrayList<>(2));
+            }
+            String role = rs.getString("role_name");
+            if (role != null) {
+                current.roles().add(role);
+            }
+        }
+
+        void finish() {
+            if (current == null) {
+                return;
+            }
+            try {
+                writer.write(current);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            current = null;
+            count++;
+            exportedRows.increment();
+        }
+    }
+
+    private interface RowWriter {
+        default void start() throws IOException {
+        }
+
+        void write(UserExportDto user) throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final OutputStream out;
+
+        private NdjsonRowWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(UserExportDto user) throws IOException {
+            out.write(userWriter.writeValueAsBytes(user));
+            out.write('\n');
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final OutputStream out;
+        private final StringBuilder line = new StringBuilder(256);
+
+        private CsvRowWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void start() throws IOException {
+            out.write(CSV_HEADER.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void write(UserExportDto user) throws IOException {
+            line.setLength(0);
+            line.append(user.id()).append(',');
+            appendField(user.name());
+            line.append(',').append(user.age()).append(',');
+            appendField(user.email());
+            line.append(',').append(user.version()).append(',');
+            appendField(String.join(";", user.roles()));
+            line.append('\n');
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        // RFC 4180: в кавычки только поля с разделителями, кавычками или переводами строк
+        private void appendField(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                line.append(value);
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    line.append('"');
+                }
+                line.append(c);
+            }
+            line.append('"');
+        }
+    }
+}
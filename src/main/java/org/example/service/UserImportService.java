@@ -0,0 +1,236 @@
+package org.example.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.example.dto.BulkImportResultDto;
+import org.example.dto.BulkImportRowDto;
+import org.example.dto.UserChangeDto;
+import org.example.dto.UserDto;
+import org.example.entity.User;
+import org.example.exception.PasswordHashingRejectedException;
+import org.example.exception.RoleNotFoundException;
+import org.example.repository.UserRepository;
+import org.example.security.PasswordHashingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Массовый импорт пользователей порциями.
+ * На порцию: один запрос на проверку email, BCrypt-хэширование в общем пуле PasswordHashingService
+ * и одна транзакция с батчевыми INSERT в users и users_roles (id из пулового sequence).
+ */
+@Service
+public class UserImportService {
+
+    private final UserRepository userRepository;
+    private final RoleRegistry roleRegistry;
+    private final PasswordHashingService hashingService;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final DataVersions dataVersions;
+    private final UserChangeOutbox userChangeOutbox;
+    private final int chunkSize;
+
+    public UserImportService(UserRepository userRepository,
+                             RoleRegistry roleRegistry,
+                             PasswordHashingService hashingService,
+                             Validator validator,
+                             TransactionTemplate transactionTemplate,
+                             EntityManager entityManager,
+                             DataVersions dataVersions,
+                             UserChangeOutbox userChangeOutbox,
+                             @Value("${app.import.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.roleRegistry = roleRegistry;
+        this.hashingService = hashingService;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.dataVersions = dataVersions;
+        this.userChangeOutbox = userChangeOutbox;
+        this.chunkSize = chunkSize;
+    }
+
+    public BulkImportResultDto importUsers(Iterator<UserDto> users) {
+        List<BulkImportRowDto> results = new ArrayList<>();
+        Set<String> seenEmails = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        while (users.hasNext()) {
+            chunk.add(new Row(index++, users.next()));
+            if (chunk.size() == chunkSize || !users.hasNext()) {
+                importChunk(chunk, seenEmails);
+                chunk.forEach(row -> results.add(row.result));
+                chunk.clear();
+            }
+        }
+
+        int created = (int) results.stream().filter(r -> BulkImportRowDto.CREATED.equals(r.getStatus())).count();
+        return BulkImportResultDto.builder()
+                .created(created)
+                .failed(results.size() - created)
+                .rows(results)
+                .build();
+    }
+
+    private void importChunk(List<Row> chunk, Set<String> seenEmails) {
+        List<Row> pending = new ArrayList<>();
+        for (Row row : chunk) {
+            String error = validate(row.dto);
+            if (error == null && !seenEmails.add(row.dto.getEmail())) {
+                error = "Duplicate email in request: " + row.dto.getEmail();
+            }
+            if (error == null) {
+                pending.add(row);
+            } else {
+                row.fail(error);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Set<String> existing = userRepository.findExistingEmails(
+                pending.stream().map(r -> r.dto.getEmail()).collect(Collectors.toList()));
+        pending.removeIf(row -> {
+            if (existing.contains(row.dto.getEmail())) {
+                row.fail("Email already exists " + row.dto.getEmail());
+                return true;
+            }
+            return false;
+        });
+
+        encodePasswords(pending);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(pending));
+        } catch (DataAccessException | TransactionException ex) {
+            pending.forEach(row -> row.fail("Chunk rejected: " + ex.getMostSpecificCause().getMessage()));
+        }
+    }
+
+    /**
+     * Хэши ставятся прямо в пул PasswordHashingService, не больше числа его потоков одновременно:
+     * так импорт загружает все потоки, но не занимает очередь, из которой обслуживаются входы.
+     * Отказ пула (очередь полна или timeout) — ошибка только этой строки, остальные импортируются.
+     */
+    private void encodePasswords(List<Row> rows) {
+        int window = hashingService.getThreads();
+        Deque<Row> inFlight = new ArrayDeque<>(window);
+        for (Row row : rows) {
+            if (row.dto.getPassword() == null) {
+                continue;
+            }
+            if (inFlight.size() == window) {
+                awaitPassword(inFlight.poll());
+            }
+            try {
+                row.encoding = hashingService.encodeAsync(row.dto.getPassword());
+                inFlight.add(row);
+            } catch (PasswordHashingRejectedException ex) {
+                row.fail(ex.getMessage());
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            awaitPassword(inFlight.poll());
+        }
+        rows.removeIf(row -> BulkImportRowDto.FAILED.equals(row.result.getStatus()));
+    }
+
+    private void awaitPassword(Row row) {
+        try {
+            row.encodedPassword = hashingService.await(row.encoding);
+        } catch (PasswordHashingRejectedException ex) {
+            row.fail(ex.getMessage());
+        } finally {
+            row.encoding = null;
+        }
+    }
+
+    private void insert(List<Row> rows) {
+        List<Row> persisted = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            try {
+                User user = User.builder()
+                        .name(row.dto.getName())
+                        .age(row.dto.getAge())
+                        .email(row.dto.getEmail())
+                        .password(row.encodedPassword)
+                        .roles(row.dto.getRoles() == null
+                                ? new HashSet<>()
+                                : roleRegistry.getReferences(row.dto.getRoles()))
+                        .build();
+                entityManager.persist(user);
+                row.user = user;
+                persisted.add(row);
+            } catch (RoleNotFoundException ex) {
+                row.fail(ex.getMessage());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        persisted.forEach(Row::created);
+        if (!persisted.isEmpty()) {
+            userChangeOutbox.recordAll(UserChangeDto.Operation.CREATED,
+                    persisted.stream().map(row -> row.user.getId()).toList(), List.of());
+            dataVersions.usersChanged();
+        }
+    }
+
+    private String validate(UserDto dto) {
+        Set<ConstraintViolation<UserDto>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static final class Row {
+        private final UserDto dto;
+        private final BulkImportRowDto result;
+        private Future<String> encoding;
+        private String encodedPassword;
+        private User user;
+
+        private Row(int index, UserDto dto) {
+            this.dto = dto;
+            this.result = BulkImportRowDto.builder()
+                    .index(index)
+                    .email(dto.getEmail())
+                    .build();
+        }
+
+        private void fail(String error) {
+            result.setId(null);
+            result.setStatus(BulkImportRowDto.FAILED);
+            result.setError(error);
+        }
+
+        private void created() {
+            result.setStatus(BulkImportRowDto.CREATED);
+            result.setId(user.getId());
+        }
+    }
+}
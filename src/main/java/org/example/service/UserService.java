@@ -1,13 +1,27 @@
 package org.example.service;
 
+import org.example.dto.RoleAssignmentDto;
 import org.example.dto.UserDto;
+import org.example.dto.UserPatchDto;
+import org.example.dto.UserSearchCriteria;
+import org.example.dto.Versioned;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PagedModel;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface UserService {
-    List<UserDto> getAllUsers();
+    long getUsersVersion();
+    List<UserDto> getUsersPage(Long after, int limit);
+    Versioned<List<UserDto>> getVersionedUsersPage(Long after, int limit);
+    Versioned<PagedModel<UserDto>> searchUsers(UserSearchCriteria criteria, Pageable pageable);
     UserDto getUserById(Long id);
+    long getUserVersion(Long id);
     UserDto createUser(UserDto dto);
-    UserDto updateUser(Long id, UserDto dto);
-    void deleteUser(Long id);
+    UserDto updateUser(Long id, UserDto dto, Long expectedVersion);
+    UserDto patchUser(Long id, UserPatchDto patch, Long expectedVersion);
+    void deleteUser(Long id, Long expectedVersion);
+    int deleteUsers(Collection<Long> ids);
+    int updateRoles(RoleAssignmentDto assignment);
 }
\ No newline at end of file
@@ -1,38 +1,109 @@
 package org.example.service;
 
-
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.example.dto.RoleAssignmentDto;
+import org.example.dto.UserChangeDto;
 import org.example.dto.UserDto;
+import org.example.dto.UserPatchDto;
+import org.example.dto.UserSearchCriteria;
+import org.example.dto.Versioned;
 import org.example.entity.Role;
 import org.example.entity.User;
+import org.example.exception.BadRequestException;
 import org.example.exception.EmailAlreadyExistsException;
-import org.example.exception.RoleNotFoundException;
+import org.example.exception.PreconditionFailedException;
 import org.example.exception.UserNotFoundException;
-import org.example.repository.RoleRepository;
+import org.example.mapper.UserMapper;
 import org.example.repository.UserRepository;
-import org.modelmapper.ModelMapper;
+import org.example.repository.UserRoleRow;
+import org.example.repository.UserSpecifications;
+import org.example.repository.UserSummary;
+import org.example.security.PrincipalCache;
+import org.example.security.TokenRevocations;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.web.PagedModel;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
+@Timed(value = "user.service", description = "UserServiceImpl method latency")
 public class UserServiceImpl implements UserService {
 
+    private static final int MAX_BULK_IDS = 1000;
+
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
     private final PasswordEncoder passwordEncoder;
-    private final ModelMapper modelMapper;
+    private final UserMapper userMapper;
+    private final PrincipalCache principalCache;
+    private final TokenRevocations tokenRevocations;
+    private final UserChangeOutbox userChangeOutbox;
+    private final DataVersions dataVersions;
 
-    public List<UserDto> getAllUsers() {
-        return userRepository.findAllWithRoles().stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
+    /**
+     * Версия списка пользователей для If-None-Match — с той же реплики, что и остальные read-only запросы.
+     */
+    public long getUsersVersion() {
+        return dataVersions.users();
+    }
+
+    /**
+     * Keyset-страница: пользователи с id > after, отсортированные по id.
+     * Два запроса на страницу: сами пользователи (LIMIT в БД, без JOIN FETCH),
+     * затем строки users_roles только для этих id.
+     */
+    public List<UserDto> getUsersPage(Long after, int limit) {
+        List<UserSummary> users = userRepository.findSummariesAfter(after == null ? 0L : after, Limit.of(limit));
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = users.stream().map(UserSummary::getId).collect(Collectors.toList());
+        return assemble(users, userRepository.findRoleRowsByUserIdIn(ids));
+    }
+
+    /**
+     * Страница и версия списка из одной read-only транзакции, а значит из одной базы:
+     * версия читается первой, поэтому данные не старее неё.
+     */
+    public Versioned<List<UserDto>> getVersionedUsersPage(Long after, int limit) {
+        long version = dataVersions.users();
+        return new Versioned<>(version, getUsersPage(after, limit));
+    }
+
+    /**
+     * Фильтрация, сортировка и LIMIT/OFFSET выполняются в БД по users без JOIN FETCH,
+     * роли для найденной страницы догружаются отдельным запросом, как в getUsersPage.
+     * Версия списка читается в той же транзакции, как в getVersionedUsersPage.
+     */
+    public Versioned<PagedModel<UserDto>> searchUsers(UserSearchCriteria criteria, Pageable pageable) {
+        long version = dataVersions.users();
+        Page<User> page = userRepository.findAll(toSpecification(criteria), pageable);
+        if (page.isEmpty()) {
+            return new Versioned<>(version, new PagedModel<>(page.map(userMapper::toDto)));
+        }
+
+        List<Long> ids = page.getContent().stream().map(User::getId).collect(Collectors.toList());
+        Map<Long, List<String>> rolesByUser = groupRoles(userRepository.findRoleRowsByUserIdIn(ids));
+        return new Versioned<>(version, new PagedModel<>(
+                page.map(u -> userMapper.toDto(u, rolesByUser.getOrDefault(u.getId(), new ArrayList<>())))));
     }
 
     public UserDto getUserById(Long id) {
@@ -41,6 +112,14 @@ public class UserServiceImpl implements UserService {
         return toDto(user);
     }
 
+    /**
+     * Только значение @Version по первичному ключу — для ETag без загрузки пользователя и ролей.
+     */
+    public long getUserVersion(Long id) {
+        return userRepository.findVersionById(id)
+                .orElseThrow(() -> new UserNotFoundException(id));
+    }
+
     @Transactional
     public UserDto createUser(UserDto userDto) {
         User user = toEntity(userDto);
@@ -53,62 +132,284 @@ public class UserServiceImpl implements UserService {
             user.setPassword(passwordEncoder.encode(userDto.getPassword()));
         }
 
-        return toDto(userRepository.save(user));
+        User saved = userRepository.save(user);
+        userChangeOutbox.recordCreated(saved.getId(), saved.getVersion());
+        dataVersions.usersChanged();
+        return userMapper.toDto(saved, roleNames(userDto));
     }
 
     @Transactional
-    public UserDto updateUser(Long id, UserDto userDto) {
+    public UserDto updateUser(Long id, UserDto userDto, Long expectedVersion) {
+        return patchUser(id, UserPatchDto.builder()
+                .name(userDto.getName())
+                .age(userDto.getAge())
+                .email(userDto.getEmail())
+                .password(userDto.getPassword())
+                .roles(userDto.getRoles())
+                .build(), expectedVersion);
+    }
+
+    /**
+     * Меняет только то, что действительно отличается: неизменённые поля не пишутся (@DynamicUpdate),
+     * роли сравниваются по id и в users_roles удаляются/добавляются только разницы.
+     * Если ничего не изменилось, UPDATE не выполняется и кэш принципала не сбрасывается.
+     * expectedVersion (из If-Match) сверяется с прочитанной версией, а гонку между чтением и записью
+     * ловит сам UPDATE ... WHERE version = ? — без блокировок на время запроса.
+     */
+    @Transactional
+    public UserDto patchUser(Long id, UserPatchDto patch, Long expectedVersion) {
         User user = userRepository.findByIdWithRoles(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
+        checkVersion(id, expectedVersion, user.getVersion());
 
-        user.setName(userDto.getName());
-        user.setAge(userDto.getAge());
-
-        existsByEmail(userDto.getEmail()).ifPresent(existingUser -> {
-            if (!existingUser.getId().equals(id)) {
-                throw new EmailAlreadyExistsException("Email for update already exists: " + userDto.getEmail());
-            }
-        });
+        String previousEmail = user.getEmail();
+        List<String> changedFields = new ArrayList<>();
 
-        user.setEmail(userDto.getEmail());
-        if (userDto.getPassword() != null && !userDto.getPassword().isEmpty()) {
-            user.setPassword(passwordEncoder.encode(userDto.getPassword()));
+        if (patch.getName() != null && !patch.getName().equals(user.getName())) {
+            user.setName(patch.getName());
+            changedFields.add("name");
+        }
+        if (patch.getAge() != null && !patch.getAge().equals(user.getAge())) {
+            user.setAge(patch.getAge());
+            changedFields.add("age");
+        }
+        if (patch.getEmail() != null && !patch.getEmail().equals(user.getEmail())) {
+            existsByEmail(patch.getEmail()).ifPresent(existingUser -> {
+                throw new EmailAlreadyExistsException("Email for update already exists: " + patch.getEmail());
+            });
+            user.setEmail(patch.getEmail());
+            changedFields.add("email");
+        }
+        if (isNewPassword(patch.getPassword(), user.getPassword())) {
+            user.setPassword(passwordEncoder.encode(patch.getPassword()));
+            changedFields.add("password");
+        }
+        if (patch.getRoles() != null && syncRoles(user, patch.getRoles())) {
+            changedFields.add("roles");
         }
-        user.getRoles().clear();
-        user.getRoles().addAll(userDto.getRoles().stream()
-                .map(rn -> roleRepository.findByName(rn)
-                        .orElseThrow(() -> new RoleNotFoundException("Role not found: " + rn)))
-                .collect(Collectors.toSet()));
 
-        userRepository.save(user);
+        if (!changedFields.isEmpty()) {
+            // flush сейчас, чтобы в ответ и в outbox ушла уже увеличенная версия
+            userRepository.flush();
+            principalCache.evictAfterCommit(previousEmail, user.getEmail());
+            userChangeOutbox.recordUpdated(id, user.getVersion(), changedFields);
+            dataVersions.usersChanged();
+        }
+        if (changedFields.contains("password") || changedFields.contains("roles")) {
+            tokenRevocations.revokeUserAfterCommit(id);
+        }
 
-        return toDto(user);
+        List<String> roles = patch.getRoles() != null
+                ? patch.getRoles().stream().distinct().collect(Collectors.toList())
+                : user.getRoles().stream().map(Role::getName).collect(Collectors.toList());
+        return userMapper.toDto(user, roles);
     }
 
     @Transactional
-    public void deleteUser(Long id) {
-        int deleted = userRepository.deleteUserByIdCustom(id);
+    public void deleteUser(Long id, Long expectedVersion) {
+        String email = userRepository.findEmailById(id)
+                .orElseThrow(() -> new UserNotFoundException(id));
+        if (expectedVersion != null) {
+            checkVersion(id, expectedVersion, getUserVersion(id));
+        }
+        userRepository.deleteRoleLinksByUserIdIn(List.of(id));
+        int deleted = expectedVersion == null
+                ? userRepository.deleteUserByIdCustom(id)
+                : userRepository.deleteUserByIdAndVersion(id, expectedVersion);
+        if (deleted == 0 && expectedVersion != null) {
+            throw new ObjectOptimisticLockingFailureException(User.class, id);
+        }
         if (deleted == 0) throw new UserNotFoundException(id);
+        principalCache.evictAfterCommit(email);
+        tokenRevocations.revokeUserAfterCommit(id);
+        userChangeOutbox.recordDeleted(id);
+        dataVersions.usersChanged();
+    }
+
+    /**
+     * Два set-based DELETE (users_roles, затем users) независимо от числа id.
+     */
+    @Transactional
+    public int deleteUsers(Collection<Long> ids) {
+        Set<Long> distinctIds = checkBulkIds(ids);
+        userRepository.deleteRoleLinksByUserIdIn(distinctIds);
+        int deleted = userRepository.deleteByIdIn(distinctIds);
+        principalCache.evictMatchingAfterCommit(p -> distinctIds.contains(p.id()));
+        tokenRevocations.revokeUsersAfterCommit(distinctIds);
+        userChangeOutbox.recordAll(UserChangeDto.Operation.DELETED, distinctIds, List.of());
+        dataVersions.usersChanged();
+        return deleted;
+    }
+
+    /**
+     * Один INSERT ... SELECT или DELETE по users_roles на каждые MAX_BULK_IDS пользователей.
+     * emailPrefix разворачивается в id keyset-страницами по MAX_BULK_IDS (префикс сравнивается буквально,
+     * без шаблонов LIKE). В каждой порции сначала отбираются пользователи, у которых связь действительно
+     * изменится: только им поднимается версия, сбрасываются кэш принципалов и токены, — повторное ADD
+     * не даёт клиентам лишний 412 и не разлогинивает пользователей.
+     */
+    @Transactional
+    public int updateRoles(RoleAssignmentDto assignment) {
+        Long roleId = roleRegistry.getId(assignment.getRole());
+        String emailPrefix = assignment.getEmailPrefix();
+        boolean byIds = assignment.getIds() != null && !assignment.getIds().isEmpty();
+        if (byIds == (emailPrefix != null && !emailPrefix.isBlank())) {
+            throw new BadRequestException("Exactly one of 'ids' or 'emailPrefix' must be specified");
+        }
+        boolean add = assignment.getAction() == RoleAssignmentDto.Action.ADD;
+
+        Set<Long> changed = new HashSet<>();
+        int affected = 0;
+        if (byIds) {
+            affected = updateRoleChunk(roleId, add, checkBulkIds(assignment.getIds()), changed);
+        } else {
+            String prefix = checkEmailPrefix(emailPrefix);
+            List<Long> chunk;
+            long after = 0;
+            do {
+                chunk = userRepository.findIdsByEmailPrefixAfter(prefix, after, Limit.of(MAX_BULK_IDS));
+                if (!chunk.isEmpty()) {
+                    affected += updateRoleChunk(roleId, add, chunk, changed);
+                    after = chunk.get(chunk.size() - 1);
+                }
+            } while (chunk.size() == MAX_BULK_IDS);
+        }
+        if (changed.isEmpty()) {
+            return affected;
+        }
+
+        principalCache.evictMatchingAfterCommit(p -> changed.contains(p.id()));
+        tokenRevocations.revokeUsersAfterCommit(changed);
+        if (byIds) {
+            userChangeOutbox.recordAll(UserChangeDto.Operation.UPDATED, changed, List.of("roles"));
+        } else {
+            // Число затронутых не ограничено: одно событие "перечитать" вместо строки на пользователя
+            userChangeOutbox.recordReload();
+        }
+        dataVersions.usersChanged();
+        return affected;
+    }
+
+    // Версия поднимается до изменения связей, по тем же id, что отобраны по текущему состоянию users_roles
+    private int updateRoleChunk(Long roleId, boolean add, Collection<Long> ids, Set<Long> changed) {
+        List<Long> toChange = add
+                ? userRepository.findIdsWithoutRole(roleId, ids)
+                : userRepository.findIdsWithRole(roleId, ids);
+        if (toChange.isEmpty()) {
+            return 0;
+        }
+        userRepository.incrementVersionByIdIn(toChange);
+        changed.addAll(toChange);
+        return add
+                ? userRepository.addRoleByUserIdIn(roleId, toChange)
+                : userRepository.removeRoleByUserIdIn(roleId, toChange);
     }
 
     private UserDto toDto(User user) {
-        UserDto dto = modelMapper.map(user, UserDto.class);
-        dto.setRoles(user.getRoles().stream().map(Role::getName).collect(Collectors.toList()));
-        dto.setPassword(null);
-        return dto;
+        return userMapper.toDto(user);
+    }
+
+    private List<UserDto> assemble(List<UserSummary> users, List<UserRoleRow> roleRows) {
+        Map<Long, List<String>> rolesByUser = groupRoles(roleRows);
+        return users.stream()
+                .map(u -> userMapper.toDto(u, rolesByUser.getOrDefault(u.getId(), new ArrayList<>())))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, List<String>> groupRoles(List<UserRoleRow> roleRows) {
+        Map<Long, List<String>> rolesByUser = new HashMap<>();
+        for (UserRoleRow row : roleRows) {
+            rolesByUser.computeIfAbsent(row.getUserId(), id -> new ArrayList<>()).add(row.getRoleName());
+        }
+        return rolesByUser;
+    }
+
+    private Specification<User> toSpecification(UserSearchCriteria criteria) {
+        List<Specification<User>> specs = new ArrayList<>();
+        if (criteria.getEmail() != null && !criteria.getEmail().isBlank()) {
+            specs.add(UserSpecifications.emailStartsWith(criteria.getEmail()));
+        }
+        if (criteria.getName() != null && !criteria.getName().isBlank()) {
+            specs.add(UserSpecifications.nameContains(criteria.getName()));
+        }
+        if (criteria.getMinAge() != null) {
+            specs.add(UserSpecifications.ageAtLeast(criteria.getMinAge()));
+        }
+        if (criteria.getMaxAge() != null) {
+            specs.add(UserSpecifications.ageAtMost(criteria.getMaxAge()));
+        }
+        if (criteria.getRole() != null && !criteria.getRole().isBlank()) {
+            specs.add(UserSpecifications.hasRole(roleRegistry.getId(criteria.getRole())));
+        }
+        return Specification.allOf(specs);
     }
 
     private User toEntity(UserDto dto) {
-        User user = modelMapper.map(dto, User.class);
+        User user = userMapper.toEntity(dto);
         if (dto.getRoles() != null) {
-            user.setRoles(dto.getRoles().stream()
-                    .map(rn -> roleRepository.findByName(rn)
-                            .orElseThrow(() -> new RuntimeException("Role not found: " + rn)))
-                    .collect(Collectors.toSet()));
+            user.setRoles(roleRegistry.getReferences(dto.getRoles()));
         }
         return user;
     }
 
+    // Роли-прокси из RoleRegistry не инициализированы, поэтому имена для ответа берём из запроса
+    private List<String> roleNames(UserDto dto) {
+        return dto.getRoles() == null
+                ? new ArrayList<>()
+                : dto.getRoles().stream().distinct().collect(Collectors.toList());
+    }
+
+    private boolean isNewPassword(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || rawPassword.isEmpty()) {
+            return false;
+        }
+        return encodedPassword == null || !passwordEncoder.matches(rawPassword, encodedPassword);
+    }
+
+    // Удаляет лишние и добавляет недостающие роли; clear() + addAll() переписал бы все строки users_roles
+    private boolean syncRoles(User user, Collection<String> roleNames) {
+        Map<Long, String> target = new HashMap<>();
+        for (String name : roleNames) {
+            target.put(roleRegistry.getId(name), name);
+        }
+
+        Set<Role> roles = user.getRoles();
+        boolean changed = roles.removeIf(role -> !target.containsKey(role.getId()));
+        Set<Long> current = roles.stream().map(Role::getId).collect(Collectors.toSet());
+        for (Map.Entry<Long, String> entry : target.entrySet()) {
+            if (!current.contains(entry.getKey())) {
+                roles.add(roleRegistry.getReference(entry.getValue()));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void checkVersion(Long id, Long expectedVersion, Long currentVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new PreconditionFailedException("User " + id + " has version " + currentVersion
+                    + ", expected " + expectedVersion);
+        }
+    }
+
+    private Set<Long> checkBulkIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("At least one id must be specified");
+        }
+        if (ids.size() > MAX_BULK_IDS) {
+            throw new BadRequestException("At most " + MAX_BULK_IDS + " ids per request");
+        }
+        return new HashSet<>(ids);
+    }
+
+    // Префикс из одних % и _ — почти наверняка опечатка, а не намерение поменять роль всем
+    private static String checkEmailPrefix(String emailPrefix) {
+        if (emailPrefix.chars().allMatch(c -> c == '%' || c == '_' || Character.isWhitespace(c))) {
+            throw new BadRequestException("emailPrefix must contain at least one literal character");
+        }
+        return emailPrefix;
+    }
+
     private Optional<User> existsByEmail(String email) {
         return userRepository.findByEmail(email);
     }
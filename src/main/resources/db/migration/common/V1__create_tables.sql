@@ -0,0 +1,35 @@
+-- Tables and indexes for User/Role. Portable between MySQL and H2 (MODE=MySQL).
+-- Ids below 1000 are reserved for seed data; sequences start at 1001 (V2).
+
+CREATE TABLE roles (
+    id      BIGINT      NOT NULL,
+    name    VARCHAR(12) NOT NULL,
+    version BIGINT      NOT NULL DEFAULT 0,
+    CONSTRAINT pk_roles PRIMARY KEY (id),
+    CONSTRAINT uk_roles_name UNIQUE (name)
+);
+
+CREATE TABLE users (
+    id       BIGINT       NOT NULL,
+    name     VARCHAR(50)  NOT NULL,
+    age      INT          NOT NULL,
+    email    VARCHAR(255) NOT NULL,
+    password VARCHAR(255),
+    version  BIGINT       NOT NULL DEFAULT 0,
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE INDEX idx_users_name ON users (name);
+CREATE INDEX idx_users_age ON users (age);
+
+CREATE TABLE users_roles (
+    user_id BIGINT NOT NULL,
+    role_id BIGINT NOT NULL,
+    CONSTRAINT pk_users_roles PRIMARY KEY (user_id, role_id),
+    CONSTRAINT fk_users_roles_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_users_roles_role FOREIGN KEY (role_id) REFERENCES roles (id)
+);
+
+-- Search by role and bulk role updates go role_id -> user_id
+CREATE INDEX idx_users_roles_role_user ON users_roles (role_id, user_id);
@@ -0,0 +1,15 @@
+-- Transactional outbox of user changes, written in the same transaction as the change itself.
+-- id is the SSE event id and resume offset (Last-Event-ID); rows older than app.changes.retention are purged.
+-- user_id is NULL for RELOAD (bulk changes that are not worth listing row by row).
+
+CREATE TABLE user_changes (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    operation  VARCHAR(10)  NOT NULL,
+    user_id    BIGINT,
+    version    BIGINT,
+    fields     VARCHAR(100),
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    CONSTRAINT pk_user_changes PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_user_changes_created_at ON user_changes (created_at);
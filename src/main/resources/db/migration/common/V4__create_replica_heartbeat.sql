@@ -0,0 +1,9 @@
+-- Heartbeat for replica lag: the application writes epoch millis on the primary and reads them back
+-- on every replica (app.datasource.replica.*). One row shared by all instances.
+CREATE TABLE replica_heartbeat (
+    id      INT    NOT NULL,
+    beat_at BIGINT NOT NULL,
+    CONSTRAINT pk_replica_heartbeat PRIMARY KEY (id)
+);
+
+INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, 0);
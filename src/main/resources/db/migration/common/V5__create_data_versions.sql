@@ -0,0 +1,10 @@
+-- Collection versions behind the users/roles list ETags, shared by all instances.
+-- Bumped by the writing transaction itself, so a committed change is visible together with its new version.
+CREATE TABLE data_versions (
+    name    VARCHAR(20) NOT NULL,
+    version BIGINT      NOT NULL,
+    CONSTRAINT pk_data_versions PRIMARY KEY (name)
+);
+
+INSERT INTO data_versions (name, version) VALUES ('roles', 1);
+INSERT INTO data_versions (name, version) VALUES ('users', 1);
@@ -0,0 +1,4 @@
+-- H2 has native sequences. Increments must match allocationSize on the entities (users 50, roles 10).
+
+CREATE SEQUENCE users_seq START WITH 1001 INCREMENT BY 50;
+CREATE SEQUENCE roles_seq START WITH 1001 INCREMENT BY 10;
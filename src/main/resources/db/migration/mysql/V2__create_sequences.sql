@@ -0,0 +1,12 @@
+-- MySQL has no sequences: Hibernate emulates users_seq/roles_seq with single-row tables.
+-- Increments must match allocationSize on the entities (users 50, roles 10).
+
+CREATE TABLE users_seq (
+    next_val BIGINT
+);
+INSERT INTO users_seq (next_val) VALUES (1001);
+
+CREATE TABLE roles_seq (
+    next_val BIGINT
+);
+INSERT INTO roles_seq (next_val) VALUES (1001);
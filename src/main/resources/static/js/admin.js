@@ -3,6 +3,14 @@ class AdminApp {
         this.API_BASE = "http://localhost:8080";
         this.roles = [];
         this.users = [];
+        this.filter = {};
+        this.page = 0;
+        this.pageSize = 50;
+        this.totalPages = 0;
+        this.editETag = null;   // версия пользователя в форме редактирования (If-Match)
+        this.deleteETag = null;
+        this.changes = null;    // EventSource на /api/users/changes
+        this.reloadTimer = null;
         this.deleteModal = new bootstrap.Modal(document.getElementById('deleteModal'));
         this.editModal = new bootstrap.Modal(document.getElementById('editModal'));
         this.newModal = new bootstrap.Modal(document.getElementById('newModal'));
@@ -18,14 +26,67 @@ class AdminApp {
         document.getElementById('newForm').addEventListener('submit', e => this.handleSubmit(e, 'new'));
         document.getElementById('editForm').addEventListener('submit', e => this.handleSubmit(e, 'edit'));
         document.getElementById('confirm-delete').addEventListener('click', () => this.deleteUser());
+        document.getElementById('filterForm').addEventListener('submit', e => this.applyFilter(e));
+        document.getElementById('prev-page').addEventListener('click', () => this.goToPage(this.page - 1));
+        document.getElementById('next-page').addEventListener('click', () => this.goToPage(this.page + 1));
 
         this.renderRolesCheckboxes('#newRoles');
         this.renderRolesCheckboxes('#editRoles');
-        setInterval(() => this.reloadUsers(), 5000);
+        document.getElementById('filterRole').innerHTML += this.roles
+            .map(r => `<option value="${r.name}">${r.name.replace('ROLE_', '')}</option>`).join('');
+        this.subscribeChanges();
     }
 
-    async reloadUsers() {
-        await this.loadUsers(); // обновляем список пользователей
+    // Вместо опроса всего списка раз в 5 секунд — поток изменений по SSE
+    subscribeChanges() {
+        this.changes = new EventSource(`${this.API_BASE}/api/users/changes`);
+        this.changes.addEventListener('user', e => this.applyChange(JSON.parse(e.data)));
+        this.changes.onerror = () => {
+            // Обрывы EventSource переподключает сам (с Last-Event-ID), а 503 и прочие ошибки закрывают поток
+            if (this.changes.readyState === EventSource.CLOSED) {
+                this.changes = null;
+                setTimeout(() => this.subscribeChanges(), 10000);
+                this.reloadUsers();
+            }
+        };
+    }
+
+    async applyChange(change) {
+        const index = this.users.findIndex(u => u.id === change.userId);
+        switch (change.operation) {
+            case 'UPDATED':
+                if (index < 0 || this.users[index].version >= change.version) return;
+                await this.refreshUser(change.userId);
+                break;
+            case 'DELETED':
+                if (index < 0) return;
+                this.users.splice(index, 1);
+                this.renderUsersTable();
+                break;
+            default:
+                // CREATED и RELOAD меняют состав страницы: одна перезагрузка на пачку событий
+                this.reloadUsers();
+        }
+    }
+
+    async refreshUser(id) {
+        const res = await fetch(`${this.API_BASE}/api/users/${id}`);
+        if (res.status === 404) {
+            this.users = this.users.filter(u => u.id !== id);
+        } else if (res.ok) {
+            this.replaceUser(await res.json());
+        }
+        this.renderUsersTable();
+    }
+
+    replaceUser(user) {
+        const index = this.users.findIndex(u => u.id === user.id);
+        if (index >= 0) this.users[index] = user;
+    }
+
+    reloadUsers() {
+        clearTimeout(this.reloadTimer);
+        this.reloadTimer = setTimeout(() => this.loadUsers(), 300);
     }
 
     async loadRoles() {
@@ -34,9 +95,35 @@ class AdminApp {
     }
 
     async loadUsers() {
-        const res = await fetch(`${this.API_BASE}/api/users`);
-        this.users = await res.json();
+        // Сервер фильтрует и отдаёт только текущую страницу
+        const params = new URLSearchParams({ ...this.filter, page: this.page, size: this.pageSize, sort: 'id' });
+        const res = await fetch(`${this.API_BASE}/api/users/search?${params}`);
+        const data = await res.json();
+        this.users = data.content;
+        this.totalPages = data.page.totalPages;
         this.renderUsersTable();
+        this.renderPagination(data.page);
+    }
+
+    applyFilter(e) {
+        e.preventDefault();
+        const entries = Object.entries(Object.fromEntries(new FormData(e.target).entries()));
+        this.filter = Object.fromEntries(entries.filter(([, v]) => v !== ''));
+        this.page = 0;
+        this.loadUsers();
+    }
+
+    goToPage(page) {
+        if (page < 0 || page >= this.totalPages) return;
+        this.page = page;
+        this.loadUsers();
+    }
+
+    renderPagination(page) {
+        document.getElementById('page-info').textContent =
+            `Page ${page.totalPages === 0 ? 0 : page.number + 1} of ${page.totalPages} (${page.totalElements} users)`;
+        document.getElementById('prev-page').disabled = page.number <= 0;
+        document.getElementById('next-page').disabled = page.number + 1 >= page.totalPages;
     }
 
     renderUsersTable() {
@@ -79,6 +166,7 @@ class AdminApp {
     async openDeleteModal(id, name) {
         const res = await fetch(`${this.API_BASE}/api/users/${id}`);
         const user = await res.json();
+        this.deleteETag = res.headers.get('ETag');
 
         document.getElementById('delete-user-id').value = user.id;
         document.getElementById('delete-name').textContent = user.name;
@@ -100,14 +188,22 @@ class AdminApp {
 
     async deleteUser() {
         const id = document.getElementById('delete-user-id').value;
-        await fetch(`${this.API_BASE}/api/users/${id}`, { method: 'DELETE' });
+        const headers = this.deleteETag ? { 'If-Match': this.deleteETag } : {};
+        const res = await fetch(`${this.API_BASE}/api/users/${id}`, { method: 'DELETE', headers });
+        if (res.status === 409 || res.status === 412) {
+            alert('User was changed by someone else. Reopen the dialog and try again.');
+        }
         this.deleteModal.hide();
-        await this.loadUsers();
+        if (res.ok) {
+            this.users = this.users.filter(u => String(u.id) !== id);
+            this.renderUsersTable();
+        }
     }
 
     async openEditModal(id) {
         const res = await fetch(`${this.API_BASE}/api/users/${id}`);
         const user = await res.json();
+        this.editETag = res.headers.get('ETag');
 
         const form = document.getElementById('editForm');
         form.querySelector('input[name="id"]').value = user.id;
@@ -146,11 +242,15 @@ class AdminApp {
             ? `${this.API_BASE}/api/users/${data.id}`
             : `${this.API_BASE}/api/users`;
         const method = type === 'edit' ? 'PUT' : 'POST';
+        const headers = { 'Content-Type': 'application/json' };
+        if (type === 'edit' && this.editETag) {
+            headers['If-Match'] = this.editETag;
+        }
 
         try {
             const res = await fetch(url, {
                 method,
-                headers: { 'Content-Type': 'application/json' },
+                headers,
                 body: JSON.stringify(data)
             });
 
@@ -196,7 +296,11 @@ class AdminApp {
             else this.newModal.hide();
 
             form.reset();
-            await this.loadUsers();
+            // Изменение применяется сразу из ответа, новый пользователь придёт событием CREATED
+            if (type === 'edit') {
+                this.replaceUser(await res.json());
+                this.renderUsersTable();
+            }
 
         } catch (err) {
             console.error(err);
@@ -0,0 +1,299 @@
+package org.example.perf;
+
+import org.example.SpringRestTestApplication;
+import org.example.service.DataSeeder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный прогон: поднимает приложение на H2 (профиль perf) с app.seed.users пользователями,
+ * затем perf.threads потоков в замкнутом цикле выполняют смешанную нагрузку с Basic-аутентификацией.
+ * Первые perf.warmup не учитываются. С -Dperf.base-url=... бьёт по уже запущенному экземпляру.
+ * Код выхода 2, если не выполнен порог perf.max-p99-ms или perf.min-throughput.
+ */
+public final class LoadTestRunner {
+
+    static final String TOTAL = "TOTAL";
+
+    private static final String ADMIN_EMAIL = "admin@gmail.com";
+    private static final String ADMIN_PASSWORD = "admin";
+    private static final String SEED_PASSWORD = "password";
+
+    /**
+     * Операции и их доли в нагрузке (веса в процентах).
+     */
+    enum Operation {
+        LIST(25), GET(25), AUTH_USER(15), ROLES(10), CREATE(10), UPDATE(10), DELETE(5);
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final String baseUrl;
+    private final int seedUsers;
+    private final String adminAuth = basic(ADMIN_EMAIL, ADMIN_PASSWORD);
+    private final ConcurrentLinkedQueue<Long> createdIds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong createdCounter = new AtomicLong();
+    private long[] userIds;
+
+    private LoadTestRunner(String baseUrl, int seedUsers) {
+        this.baseUrl = baseUrl;
+        this.seedUsers = seedUsers;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("perf.users", 10_000);
+        int threads = Integer.getInteger("perf.threads", 32);
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("perf.warmup", "15s"));
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("perf.duration", "60s"));
+        Path reportFile = Path.of(System.getProperty("perf.report", "target/perf-report.json"));
+        double maxP99 = Double.parseDouble(System.getProperty("perf.max-p99-ms", "0"));
+        double minThroughput = Double.parseDouble(System.getProperty("perf.min-throughput", "0"));
+        String externalUrl = System.getProperty("perf.base-url");
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = externalUrl;
+        if (baseUrl == null) {
+            long start = System.nanoTime();
+            SpringApplication application = new SpringApplication(SpringRestTestApplication.class);
+            application.setAdditionalProfiles("perf");
+            application.setDefaultProperties(Map.of(
+                    "server.port", "0",
+                    "app.seed.users", String.valueOf(users)));
+            context = application.run();
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            System.out.printf("Application started with %d seeded users in %d ms%n",
+                    users, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        int exitCode;
+        try {
+            LoadTestRunner runner = new LoadTestRunner(baseUrl, users);
+            runner.discoverUserIds();
+            PerfReport report = runner.run(threads, warmup, duration);
+            report.print();
+            report.write(reportFile);
+            System.out.println("\nReport written to " + reportFile.toAbsolutePath());
+            exitCode = runner.checkGates(report, maxP99, minThroughput);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    // Все id пользователей постранично через keyset-API, чтобы GET/LIST шли по существующим записям
+    private void discoverUserIds() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            HttpResponse<String> response = send(HttpRequest.newBuilder(
+                    URI.create(baseUrl + "/api/users?limit=1000" + (cursor == null ? "" : "&after=" + cursor)))
+                    .header("Authorization", adminAuth)
+                    .GET());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Cannot list users: HTTP " + response.statusCode());
+            }
+            for (JsonNode user : objectMapper.readTree(response.body())) {
+                ids.add(user.get("id").asLong());
+            }
+            cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+        } while (cursor != null);
+        userIds = ids.stream().mapToLong(Long::longValue).toArray();
+        System.out.printf("Discovered %d users%n", userIds.length);
+    }
+
+    private PerfReport run(int threads, Duration warmup, Duration duration) throws InterruptedException {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+
+        List<Map<Operation, LatencyRecorder>> perThread = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+            for (Operation operation : Operation.values()) {
+                recorders.put(operation, new LatencyRecorder());
+            }
+            perThread.add(recorders);
+            Thread worker = new Thread(() -> work(recorders, measureFrom, stopAt), "load-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        System.out.printf("Running %d threads: warmup %d s, measurement %d s%n",
+                threads, warmup.toSeconds(), duration.toSeconds());
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        PerfReport report = new PerfReport(duration);
+        LatencyRecorder total = new LatencyRecorder();
+        for (Operation operation : Operation.values()) {
+            LatencyRecorder merged = new LatencyRecorder();
+            perThread.forEach(recorders -> merged.addAll(recorders.get(operation)));
+            report.add(operation.name(), merged);
+            total.addAll(merged);
+        }
+        report.add(TOTAL, total);
+        return report;
+    }
+
+    private void work(Map<Operation, LatencyRecorder> recorders, long measureFrom, long stopAt) {
+        long now;
+        while ((now = System.nanoTime()) < stopAt) {
+            Operation operation = pick();
+            boolean success;
+            try {
+                success = execute(operation);
+            } catch (Exception ex) {
+                success = false;
+            }
+            if (now >= measureFrom) {
+                recorders.get(operation).record(System.nanoTime() - now, success);
+            }
+        }
+    }
+
+    private boolean execute(Operation operation) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (operation) {
+            case LIST -> ok(send(admin("/api/users?limit=50&after=" + randomUserId()).GET()));
+            case GET -> ok(send(admin("/api/users/" + randomUserId()).GET()));
+            case AUTH_USER -> ok(send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/user"))
+                    .header("Authorization", randomUserAuth(random))
+                    .GET()));
+            case ROLES -> ok(send(admin("/api/roles").GET()));
+            case CREATE -> create(random);
+            case UPDATE -> update(random);
+            case DELETE -> delete();
+        };
+    }
+
+    private boolean create(ThreadLocalRandom random) throws Exception {
+        String email = "perf-" + createdCounter.incrementAndGet() + "-" + UUID.randomUUID() + "@example.org";
+        String body = objectMapper.writeValueAsString(Map.of(
+                "name", "perf user",
+                "age", 18 + random.nextInt(60),
+                "email", email,
+                "password", SEED_PASSWORD,
+                "roles", List.of("ROLE_USER")));
+        HttpResponse<String> response = send(admin("/api/users")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+        if (ok(response)) {
+            createdIds.add(objectMapper.readTree(response.body()).get("id").asLong());
+            return true;
+        }
+        return false;
+    }
+
+    // Обновляются и удаляются только созданные этим прогоном пользователи
+    private boolean update(ThreadLocalRandom random) throws Exception {
+        Long id = createdIds.poll();
+        if (id == null) {
+            return create(random);
+        }
+        try {
+            String body = objectMapper.writeValueAsString(Map.of("age", 18 + random.nextInt(60)));
+            return ok(send(admin("/api/users/" + id)
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(body))));
+        } finally {
+            createdIds.add(id);
+        }
+    }
+
+    private boolean delete() throws Exception {
+        Long id = createdIds.poll();
+        if (id == null) {
+            return ok(send(admin("/api/roles").GET()));
+        }
+        return ok(send(admin("/api/users/" + id).DELETE()));
+    }
+
+    private int checkGates(PerfReport report, double maxP99, double minThroughput) {
+        Map<String, Object> total = report.operation(TOTAL);
+        double p99 = ((Number) total.get("p99Ms")).doubleValue();
+        double throughput = ((Number) total.get("throughput")).doubleValue();
+        int exitCode = 0;
+        if (maxP99 > 0 && p99 > maxP99) {
+            System.out.printf("GATE FAILED: p99 %.2f ms > %.2f ms%n", p99, maxP99);
+            exitCode = 2;
+        }
+        if (minThroughput > 0 && throughput < minThroughput) {
+            System.out.printf("GATE FAILED: throughput %.1f req/s < %.1f req/s%n", throughput, minThroughput);
+            exitCode = 2;
+        }
+        return exitCode;
+    }
+
+    private Operation pick() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        for (Operation operation : Operation.values()) {
+            roll -= operation.weight;
+            if (roll < 0) {
+                return operation;
+            }
+        }
+        return Operation.LIST;
+    }
+
+    private long randomUserId() {
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+
+    // Разные пользователи, чтобы нагрузка шла и через промахи кэша принципалов
+    private String randomUserAuth(ThreadLocalRandom random) {
+        return seedUsers > 0
+                ? basic("seed-" + random.nextInt(seedUsers) + DataSeeder.SEED_EMAIL_DOMAIN, SEED_PASSWORD)
+                : basic("user@gmail.com", "user");
+    }
+
+    private HttpRequest.Builder admin(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", adminAuth);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static boolean ok(HttpResponse<?> response) {
+        return response.statusCode() / 100 == 2;
+    }
+
+    private static String basic(String username, String password) {
+        return "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.perf;
+
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Итог прогона: пропускная способность, перцентили и гистограмма задержек по операциям и суммарно.
+ * Печатается таблицей и пишется в JSON для сравнения прогонов и проверки порогов релиза.
+ */
+final class PerfReport {
+
+    // Верхние границы корзин гистограммы, мс
+    private static final long[] BUCKETS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    private final Duration duration;
+    private final Map<String, Map<String, Object>> operations = new LinkedHashMap<>();
+
+    PerfReport(Duration duration) {
+        this.duration = duration;
+    }
+
+    void add(String name, LatencyRecorder recorder) {
+        long[] sorted = recorder.sorted();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", sorted.length);
+        stats.put("errors", recorder.errors());
+        stats.put("throughput", sorted.length / (duration.toMillis() / 1000.0));
+        stats.put("meanMs", mean(sorted));
+        stats.put("p50Ms", percentile(sorted, 50));
+        stats.put("p90Ms", percentile(sorted, 90));
+        stats.put("p99Ms", percentile(sorted, 99));
+        stats.put("p999Ms", percentile(sorted, 99.9));
+        stats.put("maxMs", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        stats.put("histogramMs", histogram(sorted));
+        operations.put(name, stats);
+    }
+
+    Map<String, Object> operation(String name) {
+        return operations.get(name);
+    }
+
+    void print() {
+        System.out.printf("%nMeasured %d s%n", duration.toSeconds());
+        System.out.printf("%-10s %9s %7s %9s %8s %8s %8s %8s %8s %8s%n",
+                "operation", "count", "errors", "req/s", "mean", "p50", "p90", "p99", "p99.9", "max");
+        operations.forEach((name, s) -> System.out.printf("%-10s %9d %7d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                name, s.get("count"), s.get("errors"), s.get("throughput"), s.get("meanMs"),
+                s.get("p50Ms"), s.get("p90Ms"), s.get("p99Ms"), s.get("p999Ms"), s.get("maxMs")));
+
+        Map<String, Object> total = operations.get(LoadTestRunner.TOTAL);
+        if (total != null) {
+            System.out.println("\nLatency histogram (all operations), ms:");
+            @SuppressWarnings("unchecked")
+            Map<String, Long> buckets = (Map<String, Long>) total.get("histogramMs");
+            long count = ((Number) total.get("count")).longValue();
+            buckets.forEach((bucket, n) -> System.out.printf("%8s %9d %s%n",
+                    bucket, n, "#".repeat(count == 0 ? 0 : (int) (60 * n / count))));
+        }
+    }
+
+    void write(Path file) throws Exception {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("durationSeconds", duration.toSeconds());
+        root.put("operations", operations);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        JsonMapper.builder()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .build()
+                .writeValue(file.toFile(), root);
+    }
+
+    private static double mean(long[] sorted) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (long value : sorted) {
+            sum += value;
+        }
+        return sum / sorted.length / 1e6;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static Map<String, Long> histogram(long[] sorted) {
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        int i = 0;
+        for (long bound : BUCKETS_MS) {
+            long count = 0;
+            while (i < sorted.length && sorted[i] <= bound * 1_000_000) {
+                count++;
+                i++;
+            }
+            buckets.put("<=" + bound, count);
+        }
+        buckets.put(">" + BUCKETS_MS[BUCKETS_MS.length - 1], (long) (sorted.length - i));
+        return buckets;
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.perf;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время до первого запроса: от запуска JVM до первого 200 на startup.probe-path (по умолчанию /api/roles,
+ * т.е. с походом в БД и ленивыми бинами). Каждый вариант запускается startup.runs раз отдельным процессом:
+ * fat jar, распакованный jar с CDS-архивом, плюс AOT, плюс профиль startup (lazy init, урезанная автоконфигурация).
+ * Только JDK, без зависимостей: запускается как single-file source (exec:exec@startup-benchmark профиля startup).
+ * Логи приложений — рядом с отчётом, в startup-logs/.
+ */
+public final class StartupBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+    private static final long POLL_INTERVAL_MS = 10;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(500))
+            .build();
+    private final String probePath;
+    private final List<String> appArgs;
+    private final Path logDir;
+
+    private StartupBenchmark(String probePath, List<String> appArgs, Path logDir) {
+        this.probePath = probePath;
+        this.appArgs = appArgs;
+        this.logDir = logDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String fatJar = System.getProperty("startup.fat-jar", "target/SpringRestTest-0.0.1-SNAPSHOT.jar");
+        String jar = System.getProperty("startup.jar", "target/startup/SpringRestTest-0.0.1-SNAPSHOT.jar");
+        String archive = System.getProperty("startup.archive", "target/startup/application.jsa");
+        int runs = Integer.getInteger("startup.runs", 5);
+        String probePath = System.getProperty("startup.probe-path", "/api/roles");
+        String appArgs = System.getProperty("startup.app-args", "").trim();
+        Path reportFile = Path.of(System.getProperty("startup.report", "target/startup-report.json"));
+
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("fat-jar", List.of("-jar", fatJar));
+        variants.put("extracted+cds", List.of("-XX:SharedArchiveFile=" + archive, "-jar", jar));
+        variants.put("extracted+cds+aot", List.of("-XX:SharedArchiveFile=" + archive,
+                "-Dspring.aot.enabled=true", "-jar", jar));
+        variants.put("extracted+cds+lazy", List.of("-XX:SharedArchiveFile=" + archive,
+                "-jar", jar, "--spring.profiles.active=startup"));
+
+        Path logDir = reportFile.toAbsolutePath().getParent().resolve("startup-logs");
+        Files.createDirectories(logDir);
+        StartupBenchmark benchmark = new StartupBenchmark(probePath,
+                appArgs.isEmpty() ? List.of() : Arrays.asList(appArgs.split("\\s+")), logDir);
+
+        Map<String, long[]> results = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            long[] millis = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                millis[run] = benchmark.measure(variant.getKey(), run, variant.getValue());
+                System.out.printf("%-20s run %d: %d ms%n", variant.getKey(), run + 1, millis[run]);
+            }
+            Arrays.sort(millis);
+            results.put(variant.getKey(), millis);
+        }
+
+        print(results);
+        write(reportFile, probePath, results);
+        System.out.println("\nReport written to " + reportFile.toAbsolutePath());
+    }
+
+    private long measure(String variant, int run, List<String> jvmArgs) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("--server.port=" + port);
+        command.addAll(appArgs);
+
+        URI probe = URI.create("http://localhost:" + port + probePath);
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logDir.resolve(variant + "-" + (run + 1) + ".log").toFile())
+                .start();
+        try {
+            long deadline = start + TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant + " exited with code " + process.exitValue()
+                            + ", see " + logDir.resolve(variant + "-" + (run + 1) + ".log"));
+                }
+                if (ready(probe)) {
+                    return (System.nanoTime() - start) / 1_000_000;
+                }
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+            throw new IllegalStateException(variant + " did not answer " + probePath + " within " + TIMEOUT);
+        } finally {
+            // SIGTERM: штатное завершение, чтобы следующий запуск не упёрся в занятые ресурсы
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private boolean ready(URI probe) throws InterruptedException {
+        try {
+            HttpResponse<Void> response = client.send(HttpRequest.newBuilder(probe)
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void print(Map<String, long[]> results) {
+        System.out.printf("%nTime to first request, ms%n%-20s %8s %8s %8s %8s%n", "variant", "min", "median", "mean", "max");
+        results.forEach((variant, millis) -> System.out.printf(Locale.ROOT, "%-20s %8d %8d %8.0f %8d%n",
+                variant, millis[0], median(millis), Arrays.stream(millis).average().orElse(0), millis[millis.length - 1]));
+    }
+
+    private static void write(Path file, String probePath, Map<String, long[]> results) throws IOException {
+        StringJoiner variants = new StringJoiner(",\n", "{\n  \"probePath\": \"" + probePath + "\",\n  \"variants\": {\n", "\n  }\n}\n");
+        results.forEach((variant, millis) -> variants.add(String.format(Locale.ROOT,
+                "    \"%s\": {\"runs\": %d, \"minMs\": %d, \"medianMs\": %d, \"maxMs\": %d, \"samplesMs\": %s}",
+                variant, millis.length, millis[0], median(millis), millis[millis.length - 1], Arrays.toString(millis))));
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.writeString(file, variants.toString());
+    }
+
+    private static long median(long[] sorted) {
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Два встроенных H2 вместо MySQL primary и реплики; репликации нет, поэтому heartbeat на реплике
+ * выставляется тестом вручную.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private ReplicaRoutingDataSource router;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofSeconds(5), meterRegistry);
+        router = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica), readYourWrites,
+                Duration.ofSeconds(2), Duration.ofMillis(500), meterRegistry);
+        router.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(router);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(proxy);
+        transactionManager.setTransactionExecutionListeners(List.of(readYourWrites));
+
+        jdbc = new JdbcTemplate(proxy);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void writesGoToPrimary() {
+        replicaInSync();
+
+        assertThat(nodeIn(writeTransaction)).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicaInSync() {
+        replicaInSync();
+
+        assertThat(nodeIn(readOnlyTransaction)).isEqualTo("replica");
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        new JdbcTemplate(replica).update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1",
+                System.currentTimeMillis() - 10_000);
+        router.checkReplicas();
+
+        assertThat(nodeIn(readOnlyTransaction)).isEqualTo("primary");
+    }
+
+    @Test
+    void replicasAreNotUsedBeforeFirstCheck() {
+        assertThat(nodeIn(readOnlyTransaction)).isEqualTo("primary");
+    }
+
+    @Test
+    void writerReadsOwnWritesFromPrimary() {
+        replicaInSync();
+        authenticate("admin@example.org");
+        writeTransaction.executeWithoutResult(status ->
+                jdbc.update("UPDATE node SET name = 'primary' WHERE name = 'primary'"));
+
+        assertThat(nodeIn(readOnlyTransaction)).isEqualTo("primary");
+
+        authenticate("other@example.org");
+        assertThat(nodeIn(readOnlyTransaction)).isEqualTo("replica");
+    }
+
+    private void replicaInSync() {
+        new JdbcTemplate(replica).update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1",
+                System.currentTimeMillis());
+        router.checkReplicas();
+    }
+
+    private String nodeIn(TransactionTemplate transaction) {
+        return transaction.<String>execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private static void authenticate(String email) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(email, null, List.of()));
+    }
+
+    private static DataSource database(String node) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + node + "-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE replica_heartbeat (id INT PRIMARY KEY, beat_at BIGINT NOT NULL)");
+        setup.execute("INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, 0)");
+        setup.execute("CREATE TABLE node (name VARCHAR(20) NOT NULL)");
+        setup.update("INSERT INTO node (name) VALUES (?)", node);
+        return dataSource;
+    }
+}
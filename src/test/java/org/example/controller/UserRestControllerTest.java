@@ -0,0 +1,177 @@
+package org.example.controller;
+
+import org.example.dto.UserDto;
+import org.example.dto.UserPatchDto;
+import org.example.exception.GlobalExceptionHandler;
+import org.example.repository.UserRepository;
+import org.example.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Условные запросы к /api/users/{id}: ETag из GET, If-Match на PUT, PATCH и DELETE.
+ * Несовпадение версии — 412, запись, проигравшая гонку между чтением и UPDATE, — 409.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserRestControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @AfterEach
+    void tearDown() {
+        http.shutdownNow();
+    }
+
+    @Test
+    void getReturnsVersionAsETag() throws Exception {
+        UserDto user = createUser();
+
+        HttpResponse<String> response = send("GET", user.getId(), null);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(eTag(response)).isEqualTo("\"0\"");
+        assertThat(send("GET", user.getId(), null, "If-None-Match", "\"0\"").statusCode()).isEqualTo(304);
+    }
+
+    @Test
+    void putWithCurrentETagSucceedsAndStaleETagFails() throws Exception {
+        UserDto user = createUser();
+        user.setName("Renamed");
+
+        HttpResponse<String> updated = send("PUT", user.getId(), user, "If-Match", "\"0\"");
+        assertThat(updated.statusCode()).isEqualTo(200);
+        assertThat(eTag(updated)).isEqualTo("\"1\"");
+
+        user.setName("Lost update");
+        HttpResponse<String> stale = send("PUT", user.getId(), user, "If-Match", "\"0\"");
+        assertThat(stale.statusCode()).isEqualTo(412);
+        assertThat(userService.getUserById(user.getId()).getName()).isEqualTo("Renamed");
+    }
+
+    @Test
+    void putWithoutIfMatchChecksVersionFromBody() throws Exception {
+        UserDto user = createUser();
+        user.setName("Renamed");
+        assertThat(send("PUT", user.getId(), user).statusCode()).isEqualTo(200);
+
+        // В теле осталась version 0, а в БД уже 1
+        user.setName("Lost update");
+        assertThat(send("PUT", user.getId(), user).statusCode()).isEqualTo(412);
+    }
+
+    @Test
+    void patchWithCurrentETagSucceedsAndStaleOrWeakETagFails() throws Exception {
+        UserDto user = createUser();
+
+        HttpResponse<String> patched = send("PATCH", user.getId(), age(40), "If-Match", "\"0\"");
+        assertThat(patched.statusCode()).isEqualTo(200);
+        assertThat(eTag(patched)).isEqualTo("\"1\"");
+
+        assertThat(send("PATCH", user.getId(), age(50), "If-Match", "\"0\"").statusCode()).isEqualTo(412);
+        // If-Match сравнивается строго: слабый ETag не совпадает даже с текущей версией
+        assertThat(send("PATCH", user.getId(), age(50), "If-Match", "W/\"1\"").statusCode()).isEqualTo(412);
+        assertThat(userService.getUserById(user.getId()).getAge()).isEqualTo(40);
+    }
+
+    @Test
+    void deleteWithStaleETagFailsAndCurrentETagDeletes() throws Exception {
+        UserDto user = createUser();
+        assertThat(send("PATCH", user.getId(), age(40), "If-Match", "\"0\"").statusCode()).isEqualTo(200);
+
+        assertThat(send("DELETE", user.getId(), null, "If-Match", "\"0\"").statusCode()).isEqualTo(412);
+        assertThat(send("GET", user.getId(), null).statusCode()).isEqualTo(200);
+
+        assertThat(send("DELETE", user.getId(), null, "If-Match", "\"1\"").statusCode()).isEqualTo(200);
+        assertThat(send("GET", user.getId(), null).statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void writeThatLosesTheRaceAfterVersionCheckIsConflict() {
+        UserDto user = createUser();
+
+        // Пользователь прочитан в версии 0, и до записи его успевает изменить другая транзакция
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status -> {
+            userRepository.findByIdWithRoles(user.getId()).orElseThrow();
+            Thread concurrent = new Thread(() -> userService.patchUser(user.getId(),
+                    age(60), null));
+            concurrent.start();
+            try {
+                concurrent.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            userService.patchUser(user.getId(), age(70), 0L);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class)
+                .satisfies(ex -> assertThat(new GlobalExceptionHandler()
+                        .handleOptimisticLock((ObjectOptimisticLockingFailureException) ex).getStatusCode())
+                        .isEqualTo(HttpStatus.CONFLICT));
+
+        assertThat(userService.getUserById(user.getId()).getAge()).isEqualTo(60);
+    }
+
+    private UserDto createUser() {
+        return userService.createUser(UserDto.builder()
+                .name("Conditional")
+                .age(30)
+                .email("if-match-" + UUID.randomUUID() + "@example.org")
+                .roles(List.of("ROLE_USER"))
+                .build());
+    }
+
+    // headers — пары имя, значение
+    private HttpResponse<String> send(String method, Long id, Object body, String... headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/" + id))
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString("admin@gmail.com:admin".getBytes(StandardCharsets.UTF_8)))
+                .header("Content-Type", "application/json")
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static UserPatchDto age(int age) {
+        return UserPatchDto.builder().age(age).build();
+    }
+
+    private static String eTag(HttpResponse<?> response) {
+        return response.headers().firstValue("ETag").orElse(null);
+    }
+}
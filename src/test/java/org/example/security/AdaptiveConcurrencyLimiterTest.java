@@ -0,0 +1,89 @@
+package org.example.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Окна на настоящих часах: все запросы окна захватываются и отпускаются подряд, а последний
+ * отпускается уже после конца окна и закрывает его со всеми замерами.
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(50);
+    private static final Duration FAST = Duration.ofMillis(1);
+    private static final Duration SLOW = Duration.ofMillis(20);
+
+    @Test
+    void requestsOverTheLimitAreRejected() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.release();
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void limitGrowsWhileLatencyStaysFlat() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(20);
+
+        for (int i = 0; i < 5; i++) {
+            window(limiter, limiter.getLimit(), FAST);
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(20);
+    }
+
+    @Test
+    void limitShrinksToMinimumWhenLatencyRises() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(20);
+        for (int i = 0; i < 3; i++) {
+            window(limiter, limiter.getLimit(), FAST);
+        }
+        int grown = limiter.getLimit();
+
+        window(limiter, limiter.getLimit(), SLOW);
+        assertThat(limiter.getLimit()).isLessThan(grown);
+
+        for (int i = 0; i < 30; i++) {
+            window(limiter, limiter.getLimit(), SLOW);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void lightLoadDoesNotMoveTheLimit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(40);
+        window(limiter, 10, FAST);
+
+        // Пик 10 из 40: даже рост задержки в 20 раз ничего не говорит о пределе сервера
+        for (int i = 0; i < 3; i++) {
+            window(limiter, 10, SLOW);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(40);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initial) {
+        return new AdaptiveConcurrencyLimiter(initial, 10, 1000, WINDOW, new SimpleMeterRegistry());
+    }
+
+    private static void window(AdaptiveConcurrencyLimiter limiter, int concurrency, Duration rtt)
+            throws InterruptedException {
+        for (int i = 0; i < concurrency; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        for (int i = 1; i < concurrency; i++) {
+            limiter.release(rtt.toNanos());
+        }
+        Thread.sleep(WINDOW.plusMillis(5));
+        limiter.release(rtt.toNanos());
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * GCRA на настоящих часах: интервалы выбраны так, чтобы burst расходовался много быстрее, чем пополняется.
+ */
+class RateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void burstIsAllowedAndTheNextRequestIsDeniedWithRetryAfter() {
+        RateLimiter limiter = new RateLimiter("test", 1, 3, 1000, meterRegistry);
+
+        assertThat(limiter.tryAcquire("client")).isZero();
+        assertThat(limiter.tryAcquire("client")).isZero();
+        assertThat(limiter.tryAcquire("client")).isZero();
+
+        // Следующий запрос — не раньше, чем через один интервал эмиссии (1 с) от начала burst
+        long retryAfter = limiter.tryAcquire("client");
+        assertThat(retryAfter).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(1).toNanos());
+        assertThat(meterRegistry.get("rate.limit.rejected").tag("limiter", "test").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void deniedRequestDoesNotConsumeTheBucket() {
+        RateLimiter limiter = new RateLimiter("test", 1, 1, 1000, meterRegistry);
+        assertThat(limiter.tryAcquire("client")).isZero();
+
+        long first = limiter.tryAcquire("client");
+        long second = limiter.tryAcquire("client");
+
+        // Отказ не сдвигает TAT: повторный отказ указывает на то же время, а не на секунду позже
+        assertThat(second).isPositive().isLessThanOrEqualTo(first);
+    }
+
+    @Test
+    void keysHaveIndependentBuckets() {
+        RateLimiter limiter = new RateLimiter("test", 1, 1, 1000, meterRegistry);
+
+        assertThat(limiter.tryAcquire("first")).isZero();
+        assertThat(limiter.tryAcquire("first")).isPositive();
+        assertThat(limiter.tryAcquire("second")).isZero();
+    }
+
+    @Test
+    void bucketRefillsAtTheConfiguredRate() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter("test", 100, 2, 1000, meterRegistry);
+        assertThat(limiter.tryAcquire("client")).isZero();
+        assertThat(limiter.tryAcquire("client")).isZero();
+        long retryAfter = limiter.tryAcquire("client");
+        assertThat(retryAfter).isPositive().isLessThanOrEqualTo(Duration.ofMillis(10).toNanos());
+
+        Thread.sleep(Duration.ofNanos(retryAfter).plusMillis(1));
+
+        assertThat(limiter.tryAcquire("client")).isZero();
+    }
+
+    @Test
+    void nonPositiveRateOrBurstIsRejected() {
+        assertThatThrownBy(() -> new RateLimiter("test", 0, 10, 1000, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RateLimiter("test", 10, 0, 1000, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * TokenService без Spring: ключи задаются строкой, как в app.security.token.keys.
+ */
+class TokenServiceTest {
+
+    private static final String OLD_KEY = "old:" + secret('o');
+    private static final String NEW_KEY = "new:" + secret('n');
+    private static final AuthenticatedUser ADMIN =
+            new AuthenticatedUser(1L, "admin@gmail.com", "admin", 30, List.of("ROLE_ADMIN", "ROLE_USER"));
+    private static final AuthenticatedUser USER =
+            new AuthenticatedUser(2L, "user@gmail.com", "user", 25, List.of("ROLE_USER"));
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private TokenRevocations revocations;
+
+    @BeforeEach
+    void setUp() {
+        revocations = new TokenRevocations(Duration.ofMinutes(15), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void issuedTokenVerifiesWithItsClaims() {
+        TokenService tokens = tokens(OLD_KEY, "old", Duration.ofMinutes(15));
+
+        AccessToken token = tokens.verify(tokens.issue(ADMIN).getAccessToken());
+
+        assertThat(token.userId()).isEqualTo(1L);
+        assertThat(token.email()).isEqualTo("admin@gmail.com");
+        assertThat(token.roles()).containsExactly("ROLE_ADMIN", "ROLE_USER");
+        assertThat(token.expiresAt() - token.issuedAt()).isEqualTo(15 * 60);
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        TokenService tokens = tokens(OLD_KEY, "old", Duration.ofMinutes(15));
+        String[] parts = tokens.issue(USER).getAccessToken().split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                .replace("ROLE_USER", "ROLE_ADMIN");
+        String forged = parts[0] + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + parts[2];
+
+        assertThatThrownBy(() -> tokens.verify(forged))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Invalid token signature");
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        TokenService tokens = tokens(OLD_KEY, "old", Duration.ofMinutes(15));
+
+        assertThatThrownBy(() -> tokens.verify("not-a-token")).isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> tokens.verify("a.b.c.d")).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        TokenService tokens = tokens(OLD_KEY, "old", Duration.ZERO);
+        String token = tokens.issue(USER).getAccessToken();
+
+        assertThatThrownBy(() -> tokens.verify(token))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Token expired");
+    }
+
+    @Test
+    void rotationKeepsOldTokensValidUntilTheOldKeyIsRemoved() {
+        String issuedWithOld = tokens(OLD_KEY, "old", Duration.ofMinutes(15)).issue(USER).getAccessToken();
+
+        // Шаг ротации: новый ключ добавлен и активен, старый ещё принимается
+        TokenService rotated = tokens(OLD_KEY + "," + NEW_KEY, "new", Duration.ofMinutes(15));
+        String issuedWithNew = rotated.issue(USER).getAccessToken();
+        assertThat(rotated.verify(issuedWithOld).userId()).isEqualTo(2L);
+        assertThat(rotated.verify(issuedWithNew).userId()).isEqualTo(2L);
+        assertThat(issuedWithNew.substring(0, issuedWithNew.indexOf('.')))
+                .isNotEqualTo(issuedWithOld.substring(0, issuedWithOld.indexOf('.')));
+
+        // Старый ключ убран: его токены больше не принимаются
+        TokenService newOnly = tokens(NEW_KEY, "new", Duration.ofMinutes(15));
+        assertThat(newOnly.verify(issuedWithNew).userId()).isEqualTo(2L);
+        assertThatThrownBy(() -> newOnly.verify(issuedWithOld))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Unknown token key");
+    }
+
+    @Test
+    void activeKeyMustBeConfigured() {
+        assertThatThrownBy(() -> tokens(OLD_KEY, "new", Duration.ofMinutes(15)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void revokedTokenIsRejected() {
+        TokenService tokens = tokens(OLD_KEY, "old", Duration.ofMinutes(15));
+        String first = tokens.issue(USER).getAccessToken();
+        String second = tokens.issue(USER).getAccessToken();
+
+        revocations.revoke(tokens.verify(first));
+
+        assertThatThrownBy(() -> tokens.verify(first))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Token revoked");
+        assertThat(tokens.verify(second).userId()).isEqualTo(2L);
+    }
+
+    @Test
+    void revokingUserRejectsAllTheirEarlierTokensOnly() {
+        TokenService tokens = tokens(OLD_KEY, "old", Duration.ofMinutes(15));
+        String user = tokens.issue(USER).getAccessToken();
+        String admin = tokens.issue(ADMIN).getAccessToken();
+
+        // Вне транзакции отзыв действует сразу
+        revocations.revokeUserAfterCommit(USER.id());
+
+        assertThatThrownBy(() -> tokens.verify(user))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Token revoked");
+        assertThat(tokens.verify(admin).userId()).isEqualTo(1L);
+    }
+
+    private TokenService tokens(String keys, String activeKey, Duration ttl) {
+        return new TokenService(keys, activeKey, ttl, revocations, objectMapper);
+    }
+
+    private static String secret(char fill) {
+        return Base64.getEncoder().encodeToString(String.valueOf(fill).repeat(32).getBytes(StandardCharsets.US_ASCII));
+    }
+}
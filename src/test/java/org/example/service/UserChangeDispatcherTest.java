@@ -0,0 +1,187 @@
+package org.example.service;
+
+import org.example.dto.UserChangeDto;
+import org.example.dto.UserChangeDto.Operation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Лента /api/users/changes по настоящему HTTP: события пишутся в outbox напрямую, в своих транзакциях,
+ * чтобы управлять порядком коммитов. userId событий выбраны так, чтобы не пересекаться с сидированием.
+ * Короткий heartbeat: заголовки ответа уходят с первой записью в поток, без истории это keep-alive.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"app.changes.poll-interval=100ms", "app.changes.gap-timeout=200ms", "app.changes.heartbeat=200ms"})
+class UserChangeDispatcherTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserChangeOutbox outbox;
+
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    private record Event(String id, UserChangeDto change) {
+    }
+
+    // Обрывает открытые потоки SSE: закрытие InputStream ждало бы следующего keep-alive
+    @AfterEach
+    void tearDown() {
+        http.shutdownNow();
+    }
+
+    @Test
+    void committedChangesArriveInOrderWithTheirIds() throws Exception {
+        BlockingQueue<Event> events = subscribe(null);
+
+        transaction.executeWithoutResult(status -> outbox.recordCreated(910_001L, 0L));
+        transaction.executeWithoutResult(status -> outbox.recordUpdated(910_001L, 1L, List.of("name", "age")));
+
+        Event created = next(events);
+        Event updated = next(events);
+        assertThat(created.change().getOperation()).isEqualTo(Operation.CREATED);
+        assertThat(created.id()).isEqualTo(String.valueOf(created.change().getId()));
+        assertThat(updated.change().getOperation()).isEqualTo(Operation.UPDATED);
+        assertThat(updated.change().getFields()).containsExactly("name", "age");
+        assertThat(updated.change().getId()).isGreaterThan(created.change().getId());
+    }
+
+    @Test
+    void reconnectReplaysEverythingAfterLastEventId() throws Exception {
+        long before = outbox.maxId();
+        transaction.executeWithoutResult(status -> outbox.recordDeleted(920_001L));
+        transaction.executeWithoutResult(status -> outbox.recordDeleted(920_002L));
+        transaction.executeWithoutResult(status -> outbox.recordDeleted(920_003L));
+        long first = before + 1;
+
+        BlockingQueue<Event> events = subscribe(first);
+
+        assertThat(next(events).change().getUserId()).isEqualTo(920_002L);
+        assertThat(next(events).change().getUserId()).isEqualTo(920_003L);
+    }
+
+    @Test
+    void unknownLastEventIdGetsReload() throws Exception {
+        long cursor = outbox.maxId();
+
+        BlockingQueue<Event> events = subscribe(cursor + 1_000_000);
+
+        Event reload = next(events);
+        assertThat(reload.change().getOperation()).isEqualTo(Operation.RELOAD);
+        assertThat(reload.id()).isEqualTo(String.valueOf(reload.change().getId()));
+    }
+
+    @Test
+    void changeCommittedAfterItsIdWasSkippedIsDeliveredLateWithoutId() throws Exception {
+        BlockingQueue<Event> events = subscribe(null);
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // Меньший id, коммит позже: лента обязана пропустить дырку через gap-timeout, а не ждать
+        Thread slow = new Thread(() -> transaction.executeWithoutResult(status -> {
+            outbox.recordDeleted(930_001L);
+            inserted.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        slow.start();
+        assertThat(inserted.await(WAIT.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+        transaction.executeWithoutResult(status -> outbox.recordDeleted(930_002L));
+
+        Event onTime = next(events);
+        assertThat(onTime.change().getUserId()).isEqualTo(930_002L);
+        assertThat(onTime.id()).isNotNull();
+
+        commit.countDown();
+        slow.join();
+
+        Event late = next(events);
+        assertThat(late.change().getUserId()).isEqualTo(930_001L);
+        assertThat(late.change().getId()).isLessThan(onTime.change().getId());
+        assertThat(late.id()).isNull();
+    }
+
+    private BlockingQueue<Event> subscribe(Long lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/changes"))
+                .header("Accept", "text/event-stream")
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString("admin@gmail.com:admin".getBytes(StandardCharsets.UTF_8)));
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", String.valueOf(lastEventId));
+        }
+        HttpResponse<InputStream> response = http.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        assertThat(response.statusCode()).isEqualTo(200);
+
+        BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> read(response.body(), events), "sse-reader");
+        reader.setDaemon(true);
+        reader.start();
+        return events;
+    }
+
+    // Разбор text/event-stream: поля до пустой строки, комментарии (keep-alive) пропускаются
+    private void read(InputStream body, BlockingQueue<Event> events) {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String id = null;
+            StringBuilder data = new StringBuilder();
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isEmpty()) {
+                    if (!data.isEmpty()) {
+                        events.add(new Event(id, objectMapper.readValue(data.toString(), UserChangeDto.class)));
+                    }
+                    id = null;
+                    data.setLength(0);
+                } else if (line.startsWith("id:")) {
+                    id = line.substring(3);
+                } else if (line.startsWith("data:")) {
+                    data.append(line.substring(5));
+                }
+            }
+        } catch (IOException ignored) {
+            // Соединение оборвано в tearDown
+        }
+    }
+
+    private static Event next(BlockingQueue<Event> events) throws InterruptedException {
+        Event event = events.poll(WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        assertThat(event).as("change event within %s", WAIT).isNotNull();
+        return event;
+    }
+}